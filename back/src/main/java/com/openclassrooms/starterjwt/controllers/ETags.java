@@ -0,0 +1,52 @@
+package com.openclassrooms.starterjwt.controllers;
+
+/**
+ * Strong entity tags built from the @Version of an entity: "3" for version 3.
+ */
+final class ETags {
+    private static final String ANY = "*";
+
+    private ETags() {
+    }
+
+    static String of(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Expected version of an If-Match header, or null when the header is absent or "*" (no condition).
+     * Throws NumberFormatException for a tag that is not one of ours.
+     */
+    static Long parseVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ANY.equals(ifMatch.trim())) {
+            return null;
+        }
+
+        return Long.parseLong(unquote(ifMatch.trim()));
+    }
+
+    /**
+     * Whether an If-None-Match header lists the current version. Weak tags match too, as the comparison is weak.
+     */
+    static boolean matches(String ifNoneMatch, Long version) {
+        if (ifNoneMatch == null || version == null) {
+            return false;
+        }
+
+        for (String tag : ifNoneMatch.split(",")) {
+            String trimmedTag = tag.trim();
+            if (ANY.equals(trimmedTag) || unquote(trimmedTag).equals(String.valueOf(version))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String unquote(String tag) {
+        String strongTag = tag.startsWith("W/") ? tag.substring(2) : tag;
+        if (strongTag.length() >= 2 && strongTag.startsWith("\"") && strongTag.endsWith("\"")) {
+            return strongTag.substring(1, strongTag.length() - 1);
+        }
+        return strongTag;
+    }
+}
@@ -1,52 +1,205 @@
 package com.openclassrooms.starterjwt.controllers;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionImportReportDto;
+import com.openclassrooms.starterjwt.dto.SessionPageDto;
+import com.openclassrooms.starterjwt.dto.SessionPatchDto;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.services.ParticipationStatus;
+import com.openclassrooms.starterjwt.services.SessionPage;
 import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.services.TeacherService;
+import com.openclassrooms.starterjwt.services.UserService;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
-@CrossOrigin(origins = "*", maxAge = 3600)
+@CrossOrigin(origins = "*", maxAge = 3600, exposedHeaders = HttpHeaders.ETAG)
 @RestController
 @RequestMapping("/api/session")
 @Log4j2
 public class SessionController {
     private final SessionMapper sessionMapper;
     private final SessionService sessionService;
+    private final TeacherService teacherService;
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int importBatchSize;
 
 
     public SessionController(SessionService sessionService,
-                             SessionMapper sessionMapper) {
+                             SessionMapper sessionMapper,
+                             TeacherService teacherService,
+                             UserService userService,
+                             ObjectMapper objectMapper,
+                             Validator validator,
+                             @Value("${oc.app.sessionImportBatchSize}") int importBatchSize) {
         this.sessionMapper = sessionMapper;
         this.sessionService = sessionService;
+        this.teacherService = teacherService;
+        this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.importBatchSize = importBatchSize;
     }
 
+    /**
+     * Revalidation with If-None-Match only reads the version: an unchanged session is neither loaded nor mapped.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") String id) {
+    public ResponseEntity<?> findById(@PathVariable("id") String id,
+                                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
+            if (ifNoneMatch != null) {
+                Long version = this.sessionService.getVersion(Long.valueOf(id));
+                if (ETags.matches(ifNoneMatch, version)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ETags.of(version)).build();
+                }
+            }
+
             Session session = this.sessionService.getById(Long.valueOf(id));
 
             if (session == null) {
                 return ResponseEntity.notFound().build();
             }
 
-            return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+            return ResponseEntity.ok().eTag(ETags.of(session.getVersion())).body(this.sessionMapper.toDto(session));
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
     @GetMapping()
-    public ResponseEntity<?> findAll() {
+    public ResponseEntity<?> findAll(@RequestParam(value = "includeUsers", defaultValue = "false") boolean includeUsers) {
         List<Session> sessions = this.sessionService.findAll();
 
-        return ResponseEntity.ok().body(this.sessionMapper.toDto(sessions));
+        return ResponseEntity.ok().body(toListDto(sessions, includeUsers));
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<?> findPage(@RequestParam(value = "cursor", required = false) String cursor,
+                                      @RequestParam(value = "size", defaultValue = "20") int size,
+                                      @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME, fallbackPatterns = "yyyy-MM-dd'T'HH:mm:ssXXX") Date from,
+                                      @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME, fallbackPatterns = "yyyy-MM-dd'T'HH:mm:ssXXX") Date to,
+                                      @RequestParam(value = "teacherId", required = false) Long teacherId,
+                                      @RequestParam(value = "includeUsers", defaultValue = "false") boolean includeUsers) {
+        SessionPage page = this.sessionService.findPage(cursor, size, from, to, teacherId);
+
+        return ResponseEntity.ok().body(new SessionPageDto(toListDto(page.getSessions(), includeUsers), page.getNextCursor()));
+    }
+
+    /**
+     * Streams every session (without its participants) as NDJSON or CSV: each row is written as soon as it is read
+     * from the database cursor, so the export never holds the whole table in memory.
+     */
+    @GetMapping("/export")
+    public void export(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                       @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                       HttpServletResponse response) throws IOException {
+        boolean csv = isCsv(format);
+
+        response.setContentType(csv ? "text/csv;charset=UTF-8" : MediaType.APPLICATION_NDJSON_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"sessions." + (csv ? "csv" : "ndjson") + "\"");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        OutputStream out = response.getOutputStream();
+        if (acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip")) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            out = new GZIPOutputStream(out, 8192);
+        }
+
+        try (SessionExportWriter writer = csv ? SessionExportWriter.csv(out) : SessionExportWriter.ndjson(this.objectMapper, out)) {
+            this.sessionService.export(session -> {
+                SessionDto sessionDto = this.sessionMapper.toSummaryDto(session);
+                try {
+                    writer.write(sessionDto);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Creates the sessions of an NDJSON or CSV file (the export format) read as a stream. Rows are validated like
+     * a created session, then inserted by batches whose teachers and participants are checked with one query each;
+     * the response lists why each rejected row was not imported.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<?> importSessions(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                            HttpServletRequest request) throws IOException {
+        boolean csv = isCsv(format);
+        SessionImportReportDto report = new SessionImportReportDto();
+        Map<Integer, SessionDto> batch = new LinkedHashMap<>();
+
+        try (SessionImportReader reader = csv
+                ? SessionImportReader.csv(request.getInputStream())
+                : SessionImportReader.ndjson(this.objectMapper, request.getInputStream())) {
+            while (true) {
+                SessionDto sessionDto;
+                try {
+                    sessionDto = reader.read();
+                } catch (IllegalArgumentException e) {
+                    reject(report, reader.getRow(), List.of(e.getMessage()));
+                    continue;
+                }
+                if (sessionDto == null) {
+                    break;
+                }
+
+                Set<ConstraintViolation<SessionDto>> violations = this.validator.validate(sessionDto);
+                if (!violations.isEmpty()) {
+                    reject(report, reader.getRow(), violations.stream()
+                            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                            .sorted()
+                            .collect(Collectors.toList()));
+                    continue;
+                }
+
+                batch.put(reader.getRow(), sessionDto);
+                if (batch.size() == this.importBatchSize) {
+                    importBatch(batch, report);
+                    batch.clear();
+                }
+            }
+        }
+        importBatch(batch, report);
+        report.getErrors().sort(Comparator.comparingInt(SessionImportReportDto.RowError::getRow));
+
+        return ResponseEntity.ok().body(report);
     }
 
     @PostMapping()
@@ -56,30 +209,49 @@ public class SessionController {
         Session session = this.sessionService.create(this.sessionMapper.toEntity(sessionDto));
 
         log.info(session);
-        return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+        return ResponseEntity.ok().eTag(ETags.of(session.getVersion())).body(this.sessionMapper.toDto(session));
     }
 
     @PutMapping("{id}")
-    public ResponseEntity<?> update(@PathVariable("id") String id, @Valid @RequestBody SessionDto sessionDto) {
+    public ResponseEntity<?> update(@PathVariable("id") String id,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                    @Valid @RequestBody SessionDto sessionDto) {
         try {
-            Session session = this.sessionService.update(Long.parseLong(id), this.sessionMapper.toEntity(sessionDto));
+            Session sessionToUpdate = this.sessionMapper.toEntity(sessionDto).setVersion(ETags.parseVersion(ifMatch));
+            Session session = this.sessionService.update(Long.parseLong(id), sessionToUpdate);
 
-            return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+            return ResponseEntity.ok().eTag(ETags.of(session.getVersion())).body(this.sessionMapper.toDto(session));
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
-    @DeleteMapping("{id}")
-    public ResponseEntity<?> delete(@PathVariable("id") String id) {
+    @PatchMapping("{id}")
+    public ResponseEntity<?> patch(@PathVariable("id") String id,
+                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                   @Valid @RequestBody SessionPatchDto sessionPatchDto) {
         try {
-            Session session = this.sessionService.getById(Long.valueOf(id));
+            Session session = this.sessionService.patch(Long.parseLong(id), ETags.parseVersion(ifMatch),
+                    s -> this.sessionMapper.applyPatch(sessionPatchDto, s));
 
             if (session == null) {
                 return ResponseEntity.notFound().build();
             }
 
-            this.sessionService.delete(Long.parseLong(id));
+            return ResponseEntity.ok().eTag(ETags.of(session.getVersion())).body(this.sessionMapper.toDto(session));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @DeleteMapping("{id}")
+    public ResponseEntity<?> delete(@PathVariable("id") String id,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            if (!this.sessionService.delete(Long.parseLong(id), ETags.parseVersion(ifMatch))) {
+                return ResponseEntity.notFound().build();
+            }
+
             return ResponseEntity.ok().build();
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
@@ -89,8 +261,11 @@ public class SessionController {
     @PostMapping("{id}/participate/{userId}")
     public ResponseEntity<?> participate(@PathVariable("id") String id, @PathVariable("userId") String userId) {
         try {
-            this.sessionService.participate(Long.parseLong(id), Long.parseLong(userId));
+            ParticipationStatus status = this.sessionService.participate(Long.parseLong(id), Long.parseLong(userId));
 
+            if (status == ParticipationStatus.WAITLISTED) {
+                return ResponseEntity.accepted().build();
+            }
             return ResponseEntity.ok().build();
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
@@ -107,4 +282,72 @@ public class SessionController {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    private void importBatch(Map<Integer, SessionDto> batch, SessionImportReportDto report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Set<Long> teacherIds = this.teacherService.findExistingIds(batch.values().stream()
+                .map(SessionDto::getTeacher_id)
+                .collect(Collectors.toSet()));
+        Set<Long> userIds = this.userService.findExistingIds(batch.values().stream()
+                .map(SessionDto::getUsers)
+                .filter(Objects::nonNull)
+                .flatMap(Collection::stream)
+                .collect(Collectors.toSet()));
+
+        List<Integer> rows = new ArrayList<>();
+        List<Session> sessions = new ArrayList<>();
+        batch.forEach((row, sessionDto) -> {
+            if (!teacherIds.contains(sessionDto.getTeacher_id())) {
+                reject(report, row, List.of("teacher_id: unknown teacher " + sessionDto.getTeacher_id()));
+                return;
+            }
+            List<Long> unknownUserIds = sessionDto.getUsers() == null ? List.of() : sessionDto.getUsers().stream()
+                    .filter(userId -> !userIds.contains(userId))
+                    .distinct()
+                    .collect(Collectors.toList());
+            if (!unknownUserIds.isEmpty()) {
+                reject(report, row, List.of("users: unknown user ids " + unknownUserIds));
+                return;
+            }
+            Session session = this.sessionMapper.toImportedEntity(sessionDto);
+            if (session.getCapacity() != null && session.getUsers() != null && session.getUsers().size() > session.getCapacity()) {
+                reject(report, row, List.of("users: " + session.getUsers().size() + " participants for a capacity of " + session.getCapacity()));
+                return;
+            }
+            rows.add(row);
+            sessions.add(session);
+        });
+
+        if (sessions.isEmpty()) {
+            return;
+        }
+        try {
+            this.sessionService.importAll(sessions);
+            report.setImported(report.getImported() + sessions.size());
+        } catch (DataIntegrityViolationException e) {
+            // A teacher or user deleted since the check: the whole batch was rolled back
+            rows.forEach(row -> reject(report, row, List.of("rejected with its batch: " + e.getMostSpecificCause().getMessage())));
+        }
+    }
+
+    private static void reject(SessionImportReportDto report, int row, List<String> messages) {
+        report.getErrors().add(new SessionImportReportDto.RowError(row, messages));
+    }
+
+    private static boolean isCsv(String format) {
+        if ("csv".equalsIgnoreCase(format)) {
+            return true;
+        }
+        if ("ndjson".equalsIgnoreCase(format)) {
+            return false;
+        }
+        throw new BadRequestException("Unknown format: " + format);
+    }
+
+    private List<SessionDto> toListDto(List<Session> sessions, boolean includeUsers) {
+        return includeUsers ? this.sessionMapper.toDto(sessions) : this.sessionMapper.toSummaryDto(sessions);
+    }
 }
@@ -0,0 +1,104 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes exported sessions one at a time to a buffered stream: nothing is kept once a row is written.
+ */
+abstract class SessionExportWriter implements Closeable {
+    static SessionExportWriter ndjson(ObjectMapper objectMapper, OutputStream out) throws IOException {
+        return new NdjsonWriter(objectMapper, out);
+    }
+
+    static SessionExportWriter csv(OutputStream out) throws IOException {
+        return new CsvWriter(out);
+    }
+
+    abstract void write(SessionDto sessionDto) throws IOException;
+
+    /**
+     * One JSON object per line, serialized by the application ObjectMapper so that dates match the API.
+     */
+    private static class NdjsonWriter extends SessionExportWriter {
+        private final ObjectWriter objectWriter;
+
+        private final JsonGenerator generator;
+
+        NdjsonWriter(ObjectMapper objectMapper, OutputStream out) throws IOException {
+            this.objectWriter = objectMapper.writerFor(SessionDto.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            this.generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        void write(SessionDto sessionDto) throws IOException {
+            objectWriter.writeValue(generator, sessionDto);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+
+    private static class CsvWriter extends SessionExportWriter {
+        private static final String HEADER = "id,name,date,teacher_id,description,capacity,participantCount,createdAt,updatedAt";
+
+        private final Writer writer;
+
+        CsvWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            this.writer.write(HEADER);
+            this.writer.write("\r\n");
+        }
+
+        @Override
+        void write(SessionDto sessionDto) throws IOException {
+            writer.write(String.valueOf(sessionDto.getId()));
+            writeField(sessionDto.getName());
+            writeField(sessionDto.getDate() != null ? sessionDto.getDate().toInstant() : null);
+            writeField(sessionDto.getTeacher_id());
+            writeField(sessionDto.getDescription());
+            writeField(sessionDto.getCapacity());
+            writeField(sessionDto.getParticipantCount());
+            writeField(sessionDto.getCreatedAt());
+            writeField(sessionDto.getUpdatedAt());
+            writer.write("\r\n");
+        }
+
+        private void writeField(Object value) throws IOException {
+            writer.write(',');
+            if (value == null) {
+                return;
+            }
+
+            String text = value.toString();
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                writer.write(text);
+                return;
+            }
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+}
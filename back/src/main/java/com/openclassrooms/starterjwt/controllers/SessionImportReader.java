@@ -0,0 +1,225 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Reads imported sessions one row at a time from the request body. A malformed row is reported with an
+ * IllegalArgumentException once it has been consumed, so that reading can go on with the next one.
+ */
+abstract class SessionImportReader implements Closeable {
+    protected final BufferedReader reader;
+
+    private int row;
+
+    SessionImportReader(InputStream in) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    static SessionImportReader ndjson(ObjectMapper objectMapper, InputStream in) {
+        return new NdjsonReader(objectMapper, in);
+    }
+
+    static SessionImportReader csv(InputStream in) throws IOException {
+        return new CsvReader(in);
+    }
+
+    /**
+     * The next session, or null at the end of the input.
+     */
+    SessionDto read() throws IOException {
+        SessionDto sessionDto = readRow();
+        if (sessionDto != null) {
+            row++;
+        }
+        return sessionDto;
+    }
+
+    /**
+     * Number of the row last read, from 1.
+     */
+    int getRow() {
+        return row;
+    }
+
+    abstract SessionDto readRow() throws IOException;
+
+    /**
+     * Counts the row being rejected before rethrowing, so that getRow() designates it.
+     */
+    protected IllegalArgumentException malformed(String message) {
+        row++;
+        return new IllegalArgumentException(message);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * One JSON object per line, as written by the export; blank lines are skipped.
+     */
+    private static class NdjsonReader extends SessionImportReader {
+        private final ObjectReader objectReader;
+
+        NdjsonReader(ObjectMapper objectMapper, InputStream in) {
+            super(in);
+            this.objectReader = objectMapper.readerFor(SessionDto.class);
+        }
+
+        @Override
+        SessionDto readRow() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+            } while (line != null && line.isBlank());
+
+            if (line == null) {
+                return null;
+            }
+            SessionDto sessionDto;
+            try {
+                sessionDto = objectReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                throw malformed(e.getOriginalMessage());
+            }
+            // A null row would be taken for the end of the input
+            if (sessionDto == null) {
+                throw malformed("Expected a JSON object, got null");
+            }
+            return sessionDto;
+        }
+    }
+
+    /**
+     * Columns are found by the header, so that an export can be imported back; id and computed columns are ignored.
+     * Participants are user ids separated by ';' in an optional users column.
+     */
+    private static class CsvReader extends SessionImportReader {
+        private static final List<String> REQUIRED_COLUMNS = List.of("name", "date", "teacher_id", "description");
+
+        private final Map<String, Integer> columns = new HashMap<>();
+
+        CsvReader(InputStream in) throws IOException {
+            super(in);
+            List<String> header = readRecord();
+            if (header == null) {
+                throw new BadRequestException("Missing CSV header");
+            }
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim(), i);
+            }
+            if (!columns.keySet().containsAll(REQUIRED_COLUMNS)) {
+                throw new BadRequestException("The CSV header must contain the columns " + REQUIRED_COLUMNS);
+            }
+        }
+
+        @Override
+        SessionDto readRow() throws IOException {
+            List<String> record;
+            do {
+                record = readRecord();
+            } while (record != null && record.size() == 1 && record.get(0).isEmpty());
+
+            if (record == null) {
+                return null;
+            }
+
+            SessionDto sessionDto = new SessionDto();
+            try {
+                sessionDto.setName(field(record, "name"));
+                String date = field(record, "date");
+                sessionDto.setDate(date == null ? null : Date.from(Instant.parse(date)));
+                sessionDto.setTeacher_id(longField(record, "teacher_id"));
+                sessionDto.setDescription(field(record, "description"));
+                String capacity = field(record, "capacity");
+                sessionDto.setCapacity(capacity == null ? null : Integer.valueOf(capacity));
+                String users = field(record, "users");
+                sessionDto.setUsers(users == null ? null : Arrays.stream(users.split(";"))
+                        .map(String::trim)
+                        .filter(userId -> !userId.isEmpty())
+                        .map(Long::valueOf)
+                        .collect(Collectors.toList()));
+            } catch (NumberFormatException e) {
+                throw malformed("Invalid number: " + e.getMessage());
+            } catch (DateTimeParseException e) {
+                throw malformed("Invalid date, an ISO-8601 instant is expected: " + e.getParsedString());
+            }
+            return sessionDto;
+        }
+
+        private String field(List<String> record, String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= record.size() || record.get(index).isEmpty()) {
+                return null;
+            }
+            return record.get(index);
+        }
+
+        private Long longField(List<String> record, String column) {
+            String value = field(record, column);
+            return value == null ? null : Long.valueOf(value.trim());
+        }
+
+        /**
+         * Fields of the next record (RFC 4180: quoted fields may hold commas, doubled quotes and line breaks),
+         * or null at the end of the input.
+         */
+        private List<String> readRecord() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (; c != -1; c = reader.read()) {
+                if (quoted) {
+                    if (c != '"') {
+                        field.append((char) c);
+                        continue;
+                    }
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
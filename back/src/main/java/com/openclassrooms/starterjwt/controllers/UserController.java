@@ -1,7 +1,10 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.openclassrooms.starterjwt.exception.NotFoundException;
 import com.openclassrooms.starterjwt.mapper.UserMapper;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.security.services.RefreshTokenService;
+import com.openclassrooms.starterjwt.security.services.TokenRevocationService;
 import com.openclassrooms.starterjwt.services.UserService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -9,20 +12,24 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Objects;
-
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
 @RequestMapping("/api/user")
 public class UserController {
     private final UserMapper userMapper;
     private final UserService userService;
+    private final TokenRevocationService tokenRevocationService;
+    private final RefreshTokenService refreshTokenService;
 
 
     public UserController(UserService userService,
-                          UserMapper userMapper) {
+                          UserMapper userMapper,
+                          TokenRevocationService tokenRevocationService,
+                          RefreshTokenService refreshTokenService) {
         this.userMapper = userMapper;
         this.userService = userService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.refreshTokenService = refreshTokenService;
     }
 
     @GetMapping("/{id}")
@@ -40,22 +47,28 @@ public class UserController {
         }
     }
 
+    /**
+     * Users can only delete themselves: the DELETE is conditioned on the email of the authenticated user,
+     * and only a failed one checks whether the user exists.
+     */
     @DeleteMapping("{id}")
     public ResponseEntity<?> delete(@PathVariable("id") String id) {
         try {
-            User user = this.userService.findById(Long.valueOf(id));
-
-            if (user == null) {
-                return ResponseEntity.notFound().build();
-            }
-
+            Long userId = Long.valueOf(id);
             UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
 
-            if (!Objects.equals(userDetails.getUsername(), user.getEmail())) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            try {
+                this.userService.delete(userId, userDetails.getUsername());
+            } catch (NotFoundException e) {
+                if (this.userService.existsById(userId)) {
+                    return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+                }
+                return ResponseEntity.notFound().build();
             }
 
-            this.userService.delete(Long.parseLong(id));
+            this.userService.evictFromCache(userId);
+            this.refreshTokenService.deleteByUserId(userId);
+            this.tokenRevocationService.revokeUser(userId);
             return ResponseEntity.ok().build();
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
@@ -0,0 +1,30 @@
+package com.openclassrooms.starterjwt.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Connection to the read replica. Without a url every query goes to spring.datasource.
+ */
+@Component
+@ConfigurationProperties(prefix = "oc.app.read-replica")
+@Data
+public class ReadReplicaProperties {
+    private String url;
+
+    private String username;
+
+    private String password;
+
+    /** Defaults to the driver of the primary. */
+    private String driverClassName;
+
+    private int maximumPoolSize = 10;
+
+    /** Past this replication lag, read-only transactions go to the primary. Must exceed heartbeatMs. */
+    private long maxLagMs = 5000;
+
+    /** Period of the heartbeat written to the primary and read back from the replica. */
+    private long heartbeatMs = 1000;
+}
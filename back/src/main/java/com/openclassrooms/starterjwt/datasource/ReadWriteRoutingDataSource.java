@@ -0,0 +1,57 @@
+package com.openclassrooms.starterjwt.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gives read-only transactions a connection to the replica, while it keeps up, and everything else a connection
+ * to the primary. The transaction has to be known when the connection is taken: see ReadReplicaDataSourceConfig.
+ */
+@ManagedResource(objectName = "com.openclassrooms.starterjwt:type=DataSource,name=ReadWriteRoutingDataSource")
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    enum Route { PRIMARY, REPLICA }
+
+    private final ReplicaLagMonitor replicaLagMonitor;
+
+    private final LongAdder replicaReads = new LongAdder();
+
+    private final LongAdder primaryFallbacks = new LongAdder();
+
+    public ReadWriteRoutingDataSource(DataSource primaryDataSource, DataSource replicaDataSource,
+                                      ReplicaLagMonitor replicaLagMonitor) {
+        this.replicaLagMonitor = replicaLagMonitor;
+        setTargetDataSources(Map.of(Route.PRIMARY, primaryDataSource, Route.REPLICA, replicaDataSource));
+        setDefaultTargetDataSource(primaryDataSource);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return Route.PRIMARY;
+        }
+
+        if (!replicaLagMonitor.isReplicaUsable()) {
+            primaryFallbacks.increment();
+            return Route.PRIMARY;
+        }
+
+        replicaReads.increment();
+        return Route.REPLICA;
+    }
+
+    @ManagedAttribute
+    public long getReplicaReadCount() {
+        return replicaReads.sum();
+    }
+
+    @ManagedAttribute
+    public long getPrimaryFallbackCount() {
+        return primaryFallbacks.sum();
+    }
+}
@@ -0,0 +1,91 @@
+package com.openclassrooms.starterjwt.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Measures the replication lag with a heartbeat: the time written to REPLICA_HEARTBEAT on the primary is read
+ * back from the replica, and the lag is how old the replicated value is. The replica is only used while this lag
+ * is known and under the limit, so a stopped or broken replication sends the reads back to the primary.
+ */
+@ManagedResource(objectName = "com.openclassrooms.starterjwt:type=DataSource,name=ReplicaLagMonitor")
+public class ReplicaLagMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final JdbcTemplate primary;
+
+    private final JdbcTemplate replica;
+
+    private final long maxLagMs;
+
+    /** -1 while unknown. */
+    private volatile long lagMs = -1;
+
+    private volatile boolean replicaUsable;
+
+    public ReplicaLagMonitor(DataSource primaryDataSource, DataSource replicaDataSource, long maxLagMs) {
+        this.primary = new JdbcTemplate(primaryDataSource);
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.maxLagMs = maxLagMs;
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    @Scheduled(fixedDelayString = "${oc.app.read-replica.heartbeat-ms}")
+    public void heartbeat() {
+        beat();
+        checkLag();
+    }
+
+    void beat() {
+        long now = System.currentTimeMillis();
+        try {
+            if (primary.update("UPDATE REPLICA_HEARTBEAT SET beat_ms = ? WHERE id = 1", now) == 0) {
+                primary.update("INSERT INTO REPLICA_HEARTBEAT (id, beat_ms) VALUES (1, ?)", now);
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Could not write the replication heartbeat: {}", e.getMessage());
+        }
+    }
+
+    void checkLag() {
+        boolean wasUsable = replicaUsable;
+        try {
+            Long beatMs = replica.queryForObject("SELECT MAX(beat_ms) FROM REPLICA_HEARTBEAT", Long.class);
+            lagMs = beatMs == null ? -1 : Math.max(0, System.currentTimeMillis() - beatMs);
+        } catch (DataAccessException e) {
+            lagMs = -1;
+        }
+        replicaUsable = lagMs >= 0 && lagMs <= maxLagMs;
+
+        if (wasUsable != replicaUsable) {
+            logger.warn(replicaUsable
+                    ? "Read replica back in use (lag {} ms)"
+                    : "Read replica lagging or unreachable (lag {} ms): reads go to the primary", lagMs);
+        }
+    }
+
+    @ManagedAttribute
+    public long getLagMs() {
+        return lagMs;
+    }
+
+    @ManagedAttribute
+    public long getMaxLagMs() {
+        return maxLagMs;
+    }
+
+    @ManagedAttribute
+    public boolean getReplicaUsable() {
+        return replicaUsable;
+    }
+}
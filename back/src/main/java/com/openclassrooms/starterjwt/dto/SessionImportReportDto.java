@@ -0,0 +1,29 @@
+package com.openclassrooms.starterjwt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionImportReportDto {
+    private int imported;
+
+    private List<RowError> errors = new ArrayList<>();
+
+    /**
+     * Why a row was not imported; rows are numbered from 1, the CSV header excluded.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private int row;
+
+        private List<String> messages;
+    }
+}
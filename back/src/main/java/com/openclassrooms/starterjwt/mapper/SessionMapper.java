@@ -1,18 +1,27 @@
 package com.openclassrooms.starterjwt.mapper;
 
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionPatchDto;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import com.openclassrooms.starterjwt.services.UserService;
+import org.mapstruct.BeanMapping;
+import org.mapstruct.IterableMapping;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
 import org.mapstruct.Mappings;
+import org.mapstruct.Named;
+import org.mapstruct.NullValuePropertyMappingStrategy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -27,16 +36,84 @@ public abstract class SessionMapper implements EntityMapper<SessionDto, Session>
 
     @Mappings({
             @Mapping(source = "description", target = "description"),
-            @Mapping(target = "teacher", expression = "java(sessionDto.getTeacher_id() != null ? this.teacherService.findById(sessionDto.getTeacher_id()) : null)"),
-            @Mapping(target = "users", expression = "java(Optional.ofNullable(sessionDto.getUsers()).orElseGet(Collections::emptyList).stream().map(user_id -> { User user = this.userService.findById(user_id); if (user != null) { return user; } return null; }).collect(Collectors.toList()))"),
+            @Mapping(target = "teacher", expression = "java(sessionDto.getTeacher_id() != null ? this.teacherService.getReference(sessionDto.getTeacher_id()) : null)"),
+            @Mapping(target = "users", expression = "java(this.userService.findAllById(sessionDto.getUsers()))"),
+            @Mapping(target = "seatsTaken", ignore = true),
+            @Mapping(target = "version", ignore = true),
     })
     public abstract Session toEntity(SessionDto sessionDto);
 
 
+    /**
+     * New session whose teacher and participants are references: the caller has checked that their ids exist,
+     * so no row is read per imported session.
+     */
+    @Named("imported")
+    @Mappings({
+            @Mapping(target = "id", ignore = true),
+            @Mapping(target = "seatsTaken", ignore = true),
+            @Mapping(target = "version", ignore = true),
+            @Mapping(target = "createdAt", ignore = true),
+            @Mapping(target = "updatedAt", ignore = true),
+            @Mapping(source = "teacher_id", target = "teacher", qualifiedByName = "teacherReference"),
+            @Mapping(source = "users", target = "users", qualifiedByName = "participantReferences"),
+    })
+    public abstract Session toImportedEntity(SessionDto sessionDto);
+
     @Mappings({
             @Mapping(source = "description", target = "description"),
             @Mapping(source = "session.teacher.id", target = "teacher_id"),
             @Mapping(target = "users", expression = "java(Optional.ofNullable(session.getUsers()).orElseGet(Collections::emptyList).stream().map(u -> u.getId()).collect(Collectors.toList()))"),
+            @Mapping(target = "participantCount", expression = "java(Optional.ofNullable(session.getUsers()).orElseGet(Collections::emptyList).size())"),
     })
     public abstract SessionDto toDto(Session session);
+
+    /**
+     * Leaves the participants untouched, so that lazy users are not loaded: the count is the seats taken,
+     * kept up to date under the session row lock.
+     */
+    @Named("summary")
+    @Mappings({
+            @Mapping(source = "description", target = "description"),
+            @Mapping(source = "session.teacher.id", target = "teacher_id"),
+            @Mapping(target = "users", ignore = true),
+            @Mapping(source = "seatsTaken", target = "participantCount"),
+    })
+    public abstract SessionDto toSummaryDto(Session session);
+
+    @IterableMapping(qualifiedByName = "summary")
+    public abstract List<SessionDto> toSummaryDto(List<Session> sessions);
+
+    /**
+     * Copies the supplied (non-null) fields onto a managed session, so that only those columns are written.
+     */
+    @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mappings({
+            @Mapping(target = "id", ignore = true),
+            @Mapping(target = "seatsTaken", ignore = true),
+            @Mapping(target = "version", ignore = true),
+            @Mapping(target = "createdAt", ignore = true),
+            @Mapping(target = "updatedAt", ignore = true),
+            @Mapping(source = "teacher_id", target = "teacher", qualifiedByName = "teacherReference"),
+            @Mapping(source = "users", target = "users", qualifiedByName = "participants"),
+    })
+    public abstract void applyPatch(SessionPatchDto sessionPatchDto, @MappingTarget Session session);
+
+    @Named("teacherReference")
+    Teacher teacherReference(Long teacherId) {
+        return this.teacherService.getReference(teacherId);
+    }
+
+    @Named("participantReferences")
+    List<User> participantReferences(List<Long> userIds) {
+        if (userIds == null) {
+            return new ArrayList<>();
+        }
+        return userIds.stream().distinct().map(this.userService::getReference).collect(Collectors.toList());
+    }
+
+    @Named("participants")
+    List<User> participants(List<Long> userIds) {
+        return userIds == null ? null : this.userService.findAllById(userIds);
+    }
 }
@@ -3,11 +3,16 @@ package com.openclassrooms.starterjwt.models;
 
 import lombok.*;
 import lombok.experimental.Accessors;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.*;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
@@ -17,7 +22,13 @@ import java.util.List;
 
 @Entity
 @Table(name = "SESSIONS")
+@NamedEntityGraph(name = Session.WITH_TEACHER, attributeNodes = @NamedAttributeNode("teacher"))
+@NamedEntityGraph(name = Session.WITH_TEACHER_AND_USERS, attributeNodes = {
+        @NamedAttributeNode("teacher"),
+        @NamedAttributeNode("users")
+})
 @EntityListeners(AuditingEntityListener.class)
+@DynamicUpdate
 @Data
 @Accessors(chain = true)
 @EqualsAndHashCode(of = {"id"})
@@ -26,8 +37,25 @@ import java.util.List;
 @AllArgsConstructor
 @ToString
 public class Session {
+    /** Lists: participants are counted, not loaded. */
+    public static final String WITH_TEACHER = "Session.withTeacher";
+
+    /** Single session: the participant ids are part of the response. */
+    public static final String WITH_TEACHER_AND_USERS = "Session.withTeacherAndUsers";
+
+    /** Second-level cache region of the participant ids; written natively, PARTICIPATE rows evict it. */
+    public static final String PARTICIPANTS_CACHE_REGION = "com.openclassrooms.starterjwt.models.Session.users";
+
+    private static final String ID_GENERATOR = "Session.id";
+
+    /**
+     * Ids come from a pooled table generator rather than AUTO_INCREMENT, which would force Hibernate to insert
+     * each session on its own to read its id back: with a block of ids reserved per round trip, inserts batch.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = Session.ID_GENERATOR)
+    @TableGenerator(name = Session.ID_GENERATOR, table = "ID_GENERATOR", pkColumnName = "name",
+            valueColumnName = "next_value", pkColumnValue = "SESSIONS", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -41,17 +69,38 @@ public class Session {
     @Size(max = 2500)
     private String description;
 
+    /** Number of seats, or null for an unlimited session. */
+    @Min(1)
+    private Integer capacity;
+
+    /**
+     * Participant count kept by the booking statements (reserveSeat/releaseSeat), never written by an entity update.
+     */
+    @Column(name = "seats_taken", nullable = false, updatable = false)
+    private int seatsTaken;
+
     @OneToOne
     @JoinColumn(name = "teacher_id", referencedColumnName = "id")
+    @ToString.Exclude
     private Teacher teacher;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
             name = "PARTICIPATE",
             joinColumns = @JoinColumn( name = "session_id" ),
-            inverseJoinColumns = @JoinColumn( name = "user_id" ) )
+            inverseJoinColumns = @JoinColumn( name = "user_id" ),
+            uniqueConstraints = @UniqueConstraint(columnNames = { "session_id", "user_id" }) )
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Session.PARTICIPANTS_CACHE_REGION)
+    @ToString.Exclude
     private List<User> users;
 
+    /**
+     * Also bumped by the booking statements, so that the ETag changes with the participants.
+     */
+    @Version
+    private Long version;
+
     @CreatedDate
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
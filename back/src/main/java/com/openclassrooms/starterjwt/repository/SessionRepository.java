@@ -1,9 +1,143 @@
 package com.openclassrooms.starterjwt.repository;
 
 import com.openclassrooms.starterjwt.models.Session;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface SessionRepository  extends JpaRepository<Session, Long> {
+public interface SessionRepository extends JpaRepository<Session, Long>, SessionRepositoryCustom {
+    /**
+     * Hint naming the table a native statement writes. Without it Hibernate cannot tell what the statement
+     * changed and empties the whole second-level cache; with it only the regions mapped to the table are evicted.
+     */
+    String NATIVE_SPACES = org.hibernate.annotations.QueryHints.NATIVE_SPACES;
+
+    /**
+     * Space of the booking statements, which change the participants of a single session. No region is mapped
+     * to it, so Hibernate evicts nothing: the caller evicts the participant list of that session only.
+     */
+    String BOOKING_SPACE = "PARTICIPATE_BOOKING";
+
+    @Override
+    @EntityGraph(Session.WITH_TEACHER)
+    List<Session> findAll();
+
+    @Override
+    @EntityGraph(Session.WITH_TEACHER_AND_USERS)
+    Optional<Session> findById(Long id);
+
+    /**
+     * The session and its teacher in one query, participants left lazy: used to apply partial updates.
+     */
+    @Query("select s from Session s left join fetch s.teacher where s.id = :id")
+    Optional<Session> findWithoutParticipantsById(@Param("id") Long id);
+
+    @Query("select s.version from Session s where s.id = :id")
+    Long findVersionById(@Param("id") Long id);
+
+    /**
+     * Inserts the participation only if both the session and the user exist: returns 0 otherwise.
+     * A second participation of the same user is rejected by the (session_id, user_id) primary key.
+     */
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = BOOKING_SPACE))
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO PARTICIPATE (session_id, user_id) "
+            + "SELECT s.id, u.id FROM SESSIONS s, USERS u WHERE s.id = :sessionId AND u.id = :userId", nativeQuery = true)
+    int insertParticipation(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = BOOKING_SPACE))
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM PARTICIPATE WHERE session_id = :sessionId AND user_id = :userId", nativeQuery = true)
+    int deleteParticipation(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    /**
+     * Takes a seat if one is left: the condition and the increment are one statement, so concurrent
+     * bookings cannot both take the last seat. Returns 0 when the session is full or does not exist.
+     */
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = "SESSIONS"))
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE SESSIONS SET seats_taken = seats_taken + 1, version = version + 1 "
+            + "WHERE id = :id AND (capacity IS NULL OR seats_taken < capacity)", nativeQuery = true)
+    int reserveSeat(@Param("id") Long id);
+
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = "SESSIONS"))
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE SESSIONS SET seats_taken = seats_taken - 1, version = version + 1 "
+            + "WHERE id = :id AND seats_taken > 0", nativeQuery = true)
+    int releaseSeat(@Param("id") Long id);
+
+    /**
+     * Recounts the seats after the participants were replaced by an update of the whole session.
+     * The version is left alone: that update has already bumped it.
+     */
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = "SESSIONS"))
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE SESSIONS SET seats_taken = (SELECT COUNT(*) FROM PARTICIPATE p WHERE p.session_id = :id) "
+            + "WHERE id = :id", nativeQuery = true)
+    int resyncSeats(@Param("id") Long id);
+
+    /**
+     * Locks the session row until the end of the transaction, to serialize the waitlist changes of a session.
+     * Returns null when the session does not exist.
+     */
+    @Query(value = "SELECT id FROM SESSIONS WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Long lockById(@Param("id") Long id);
+
+    @Query(value = "SELECT COUNT(*) FROM PARTICIPATE WHERE session_id = :sessionId AND user_id = :userId", nativeQuery = true)
+    int countParticipation(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    /**
+     * Bumps the version of the session to lock its row before deleting it: returns 0 for an unknown id.
+     */
+    @Transactional
+    @Modifying
+    @Query("update Session s set s.version = s.version + 1 where s.id = :id")
+    int lockForDelete(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query("update Session s set s.version = s.version + 1 where s.id = :id and s.version = :version")
+    int lockForDeleteAtVersion(@Param("id") Long id, @Param("version") Long version);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Session s where s.id = :id")
+    int deleteByIdReturningCount(@Param("id") Long id);
+
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = "PARTICIPATE"))
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM PARTICIPATE WHERE session_id = :sessionId", nativeQuery = true)
+    int deleteParticipationsBySessionId(@Param("sessionId") Long sessionId);
+
+    @Query("select s.id from Session s join s.users u where u.id = :userId")
+    List<Long> findIdsByParticipant(@Param("userId") Long userId);
+
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = "SESSIONS"))
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE SESSIONS SET seats_taken = seats_taken - 1, version = version + 1 "
+            + "WHERE id IN (SELECT p.session_id FROM PARTICIPATE p WHERE p.user_id = :userId)", nativeQuery = true)
+    int releaseSeatsOfUser(@Param("userId") Long userId);
+
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = "PARTICIPATE"))
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM PARTICIPATE WHERE user_id = :userId", nativeQuery = true)
+    int deleteParticipationsByUserId(@Param("userId") Long userId);
 }
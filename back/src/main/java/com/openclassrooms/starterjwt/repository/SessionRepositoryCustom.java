@@ -0,0 +1,29 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.Session;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface SessionRepositoryCustom {
+    /**
+     * Sessions ordered by (date, id), strictly after the (afterDate, afterId) key when given.
+     * Only the filters that are set end up in the query, so that it can range-scan the (date, id) index.
+     */
+    List<Session> findPage(Date afterDate, Long afterId, Date from, Date to, Long teacherId, int limit);
+
+    /**
+     * Reads every session in (date, id) order through a forward-only cursor, handing each row to the consumer
+     * as it is read. Rows are detached sessions with their teacher id and seat count, participants left out.
+     * With MySQL a fetch size of Integer.MIN_VALUE streams the rows without server-side cursors; the connection
+     * cannot run another statement until the scroll is closed.
+     */
+    void scrollForExport(int fetchSize, Consumer<Session> consumer);
+
+    /**
+     * Persists the new sessions and flushes them as JDBC batches, then detaches them so that an import
+     * running batch after batch does not keep every imported session in the persistence context.
+     */
+    void insertAll(List<Session> sessions);
+}
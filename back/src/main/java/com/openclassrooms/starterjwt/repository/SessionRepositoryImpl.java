@@ -0,0 +1,95 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+class SessionRepositoryImpl implements SessionRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Session> findPage(Date afterDate, Long afterId, Date from, Date to, Long teacherId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Session> query = cb.createQuery(Session.class);
+        Root<Session> session = query.from(Session.class);
+        Path<Date> date = session.get("date");
+        Path<Long> id = session.get("id");
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (teacherId != null) {
+            predicates.add(cb.equal(session.get("teacher").get("id"), teacherId));
+        }
+        if (from != null) {
+            predicates.add(cb.greaterThanOrEqualTo(date, from));
+        }
+        if (to != null) {
+            predicates.add(cb.lessThan(date, to));
+        }
+        if (afterDate != null) {
+            predicates.add(cb.or(
+                    cb.greaterThan(date, afterDate),
+                    cb.and(cb.equal(date, afterDate), cb.greaterThan(id, afterId))));
+        }
+
+        query.select(session)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.asc(date), cb.asc(id));
+
+        return entityManager.createQuery(query)
+                .setHint("javax.persistence.fetchgraph", entityManager.getEntityGraph(Session.WITH_TEACHER))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Scalar rows: nothing is attached to the persistence context, so memory does not grow with the table.
+     */
+    @Override
+    public void scrollForExport(int fetchSize, Consumer<Session> consumer) {
+        Query<?> query = entityManager.createQuery("select s.id, s.name, s.date, s.description, t.id, s.capacity, "
+                        + "s.seatsTaken, s.createdAt, s.updatedAt from Session s left join s.teacher t order by s.date, s.id")
+                .unwrap(Query.class)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true);
+
+        try (ScrollableResults rows = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next()) {
+                Long teacherId = (Long) rows.get(4);
+                consumer.accept(Session.builder()
+                        .id((Long) rows.get(0))
+                        .name((String) rows.get(1))
+                        .date((Date) rows.get(2))
+                        .description((String) rows.get(3))
+                        .teacher(teacherId != null ? Teacher.builder().id(teacherId).build() : null)
+                        .capacity((Integer) rows.get(5))
+                        .seatsTaken((Integer) rows.get(6))
+                        .createdAt((LocalDateTime) rows.get(7))
+                        .updatedAt((LocalDateTime) rows.get(8))
+                        .build());
+            }
+        }
+    }
+
+    @Override
+    public void insertAll(List<Session> sessions) {
+        sessions.forEach(entityManager::persist);
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
@@ -1,15 +1,43 @@
 package com.openclassrooms.starterjwt.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import javax.persistence.QueryHint;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.openclassrooms.starterjwt.models.User;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+  /**
+   * Cached in the query cache: the result is invalidated whenever USERS is written.
+   */
+  @QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.CACHEABLE, value = "true"))
   Optional<User> findByEmail(String email);
 
   Boolean existsByEmail(String email); 
+
+  @Query("select u.id from User u where u.id in :ids")
+  List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Locks the row of the user having this id and email until the end of the transaction.
+   * Returns null when there is no such user.
+   */
+  @Query(value = "SELECT id FROM USERS WHERE id = :id AND email = :email FOR UPDATE", nativeQuery = true)
+  Long lockByIdAndEmail(@Param("id") Long id, @Param("email") String email);
+
+  @Transactional
+  @Modifying
+  @Query("delete from User u where u.id = :id and u.email = :email")
+  int deleteByIdAndEmailReturningCount(@Param("id") Long id, @Param("email") String email);
 }
@@ -0,0 +1,47 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+import java.util.Optional;
+
+@Repository
+public interface WaitlistRepository extends JpaRepository<WaitlistEntry, Long> {
+    Optional<WaitlistEntry> findFirstBySessionIdOrderByIdAsc(Long sessionId);
+
+    long countBySessionId(Long sessionId);
+
+    /**
+     * Queues the user only if both the session and the user exist and the user is not already a participant:
+     * returns 0 otherwise. A second entry for the same user is rejected by the (session_id, user_id) unique key.
+     */
+    @QueryHints(@QueryHint(name = SessionRepository.NATIVE_SPACES, value = "WAITLIST"))
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO WAITLIST (session_id, user_id, created_at) "
+            + "SELECT s.id, u.id, CURRENT_TIMESTAMP FROM SESSIONS s, USERS u WHERE s.id = :sessionId AND u.id = :userId "
+            + "AND NOT EXISTS (SELECT 1 FROM PARTICIPATE p WHERE p.session_id = s.id AND p.user_id = u.id)", nativeQuery = true)
+    int insertEntry(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.sessionId = :sessionId and w.userId = :userId")
+    int deleteEntry(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.sessionId = :sessionId")
+    int deleteBySessionId(@Param("sessionId") Long sessionId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,137 @@
+package com.openclassrooms.starterjwt.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+
+/**
+ * Runs the hashing of a delegate encoder (BCrypt) on a dedicated pool sized to the CPU cores, so that
+ * a login storm cannot tie up every request thread. When the pool queue is full the call fails fast
+ * with a 503 and a Retry-After header instead of waiting.
+ */
+@ManagedResource(objectName = "com.openclassrooms.starterjwt:type=PasswordEncoder,name=BoundedPasswordEncoder")
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+  private final PasswordEncoder delegate;
+
+  private final ThreadPoolExecutor executor;
+
+  private final long retryAfterSeconds;
+
+  private final LongAdder hashCount = new LongAdder();
+
+  private final LongAdder hashNanos = new LongAdder();
+
+  private final LongAdder rejectedCount = new LongAdder();
+
+  public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, long retryAfterSeconds) {
+    this.delegate = delegate;
+    this.retryAfterSeconds = retryAfterSeconds;
+    this.executor = new ThreadPoolExecutor(threads, threads,
+        0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity),
+        new CustomizableThreadFactory("password-hashing-"),
+        new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  @Override
+  public String encode(CharSequence rawPassword) {
+    return execute(() -> delegate.encode(rawPassword));
+  }
+
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    return execute(() -> delegate.matches(rawPassword, encodedPassword));
+  }
+
+  @Override
+  public boolean upgradeEncoding(String encodedPassword) {
+    return delegate.upgradeEncoding(encodedPassword);
+  }
+
+  private <T> T execute(Callable<T> hashing) {
+    Future<T> future;
+    try {
+      future = executor.submit(() -> timed(hashing));
+    } catch (RejectedExecutionException e) {
+      rejectedCount.increment();
+      throw new ServiceUnavailableException(retryAfterSeconds);
+    }
+
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private <T> T timed(Callable<T> hashing) throws Exception {
+    long start = System.nanoTime();
+    try {
+      return hashing.call();
+    } finally {
+      hashNanos.add(System.nanoTime() - start);
+      hashCount.increment();
+    }
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdown();
+  }
+
+  @ManagedAttribute
+  public int getPoolSize() {
+    return executor.getMaximumPoolSize();
+  }
+
+  @ManagedAttribute
+  public int getActiveCount() {
+    return executor.getActiveCount();
+  }
+
+  @ManagedAttribute
+  public int getQueueDepth() {
+    return executor.getQueue().size();
+  }
+
+  @ManagedAttribute
+  public int getQueueRemainingCapacity() {
+    return executor.getQueue().remainingCapacity();
+  }
+
+  @ManagedAttribute
+  public long getHashCount() {
+    return hashCount.sum();
+  }
+
+  @ManagedAttribute
+  public long getRejectedCount() {
+    return rejectedCount.sum();
+  }
+
+  @ManagedAttribute
+  public double getAverageHashMillis() {
+    long count = hashCount.sum();
+    return count == 0 ? 0 : hashNanos.sum() / 1_000_000d / count;
+  }
+}
@@ -1,43 +1,131 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.stereotype.Component;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
 
+/**
+ * Writes the 401 body from a pre-serialized template, only the message and path being escaped per
+ * request. Failures are counted by reason, and logged at most once per interval and reason along with
+ * the number of similar failures left out since the previous line.
+ */
 @Component
+@ManagedResource(objectName = "com.openclassrooms.starterjwt:type=Security,name=AuthEntryPointJwt")
 public class AuthEntryPointJwt implements AuthenticationEntryPoint {
 
   private static final Logger logger = LoggerFactory.getLogger(AuthEntryPointJwt.class);
 
+  private static final byte[] BODY_START = ("{\"status\":" + HttpServletResponse.SC_UNAUTHORIZED
+      + ",\"error\":\"Unauthorized\",\"message\":\"").getBytes(StandardCharsets.UTF_8);
+
+  private static final byte[] BODY_PATH = "\",\"path\":\"".getBytes(StandardCharsets.UTF_8);
+
+  private static final byte[] BODY_END = "\"}".getBytes(StandardCharsets.UTF_8);
+
+  private static final AuthFailureReason[] REASONS = AuthFailureReason.values();
+
+  private final LongAdder[] failureCounts = new LongAdder[REASONS.length];
+
+  private final AtomicLong[] lastLogMillis = new AtomicLong[REASONS.length];
+
+  private final LongAdder[] suppressedLogs = new LongAdder[REASONS.length];
+
+  private final long logIntervalMs;
+
+  public AuthEntryPointJwt(@Value("${oc.app.authFailureLogIntervalMs}") long logIntervalMs) {
+    this.logIntervalMs = logIntervalMs;
+    for (int i = 0; i < REASONS.length; i++) {
+      failureCounts[i] = new LongAdder();
+      lastLogMillis[i] = new AtomicLong();
+      suppressedLogs[i] = new LongAdder();
+    }
+  }
+
   @Override
   public void commence(HttpServletRequest request, HttpServletResponse response, AuthenticationException authException)
       throws IOException, ServletException {
-    logger.error("Unauthorized error: {}", authException.getMessage());
+    AuthFailureReason reason = reasonOf(request);
+    failureCounts[reason.ordinal()].increment();
+    log(reason, request, authException);
 
     response.setContentType(MediaType.APPLICATION_JSON_VALUE);
     response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
 
-    final Map<String, Object> body = new HashMap<>();
-    body.put("status", HttpServletResponse.SC_UNAUTHORIZED);
-    body.put("error", "Unauthorized");
-    body.put("message", authException.getMessage());
-    body.put("path", request.getServletPath());
+    JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+    ServletOutputStream outputStream = response.getOutputStream();
+    outputStream.write(BODY_START);
+    if (authException.getMessage() != null) {
+      outputStream.write(encoder.quoteAsUTF8(authException.getMessage()));
+    }
+    outputStream.write(BODY_PATH);
+    outputStream.write(encoder.quoteAsUTF8(request.getServletPath()));
+    outputStream.write(BODY_END);
+  }
+
+  private void log(AuthFailureReason reason, HttpServletRequest request, AuthenticationException authException) {
+    int index = reason.ordinal();
+    long now = System.currentTimeMillis();
+    long last = lastLogMillis[index].get();
 
-    final ObjectMapper mapper = new ObjectMapper();
-    mapper.writeValue(response.getOutputStream(), body);
+    if (now - last < logIntervalMs || !lastLogMillis[index].compareAndSet(last, now)) {
+      suppressedLogs[index].increment();
+      return;
+    }
+
+    logger.warn("Unauthorized request ({}) to {}: {} ({} similar since last report)",
+        reason, request.getServletPath(), authException.getMessage(), suppressedLogs[index].sumThenReset());
+  }
+
+  private static AuthFailureReason reasonOf(HttpServletRequest request) {
+    Object reason = request.getAttribute(AuthFailureReason.REQUEST_ATTRIBUTE);
+    return reason instanceof AuthFailureReason ? (AuthFailureReason) reason : AuthFailureReason.OTHER;
+  }
+
+  public long getFailureCount(AuthFailureReason reason) {
+    return failureCounts[reason.ordinal()].sum();
+  }
+
+  @ManagedAttribute
+  public Map<String, Long> getFailureCounts() {
+    Map<String, Long> counts = new LinkedHashMap<>();
+    for (AuthFailureReason reason : REASONS) {
+      counts.put(reason.name(), getFailureCount(reason));
+    }
+    return counts;
+  }
+
+  @ManagedAttribute
+  public long getExpiredCount() {
+    return getFailureCount(AuthFailureReason.EXPIRED);
   }
 
+  @ManagedAttribute
+  public long getBadSignatureCount() {
+    return getFailureCount(AuthFailureReason.BAD_SIGNATURE);
+  }
+
+  @ManagedAttribute
+  public long getMalformedCount() {
+    return getFailureCount(AuthFailureReason.MALFORMED);
+  }
 }
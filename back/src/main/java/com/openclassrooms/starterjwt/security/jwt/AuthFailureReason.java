@@ -0,0 +1,38 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.UnsupportedJwtException;
+
+/**
+ * Why a request ended up unauthenticated. Set by AuthTokenFilter as a request attribute and read back
+ * by AuthEntryPointJwt to count and log failures.
+ */
+public enum AuthFailureReason {
+  MISSING_TOKEN,
+  EXPIRED,
+  BAD_SIGNATURE,
+  MALFORMED,
+  UNSUPPORTED,
+  REVOKED,
+  OTHER;
+
+  public static final String REQUEST_ATTRIBUTE = AuthFailureReason.class.getName();
+
+  public static AuthFailureReason of(Exception e) {
+    if (e instanceof ExpiredJwtException) {
+      return EXPIRED;
+    }
+    if (e instanceof SignatureException) {
+      return BAD_SIGNATURE;
+    }
+    if (e instanceof MalformedJwtException || e instanceof IllegalArgumentException) {
+      return MALFORMED;
+    }
+    if (e instanceof UnsupportedJwtException) {
+      return UNSUPPORTED;
+    }
+    return OTHER;
+  }
+}
@@ -10,6 +10,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -17,8 +18,12 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.openclassrooms.starterjwt.security.services.TokenRevocationService;
 import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+
 public class AuthTokenFilter extends OncePerRequestFilter {
   @Autowired
   private JwtUtils jwtUtils;
@@ -26,6 +31,12 @@ public class AuthTokenFilter extends OncePerRequestFilter {
   @Autowired
   private UserDetailsServiceImpl userDetailsService;
 
+  @Autowired
+  private TokenRevocationService tokenRevocationService;
+
+  @Value("${oc.app.jwtStatelessPrincipal}")
+  private boolean statelessPrincipal;
+
   private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
   @Override
@@ -33,10 +44,17 @@ public class AuthTokenFilter extends OncePerRequestFilter {
       throws ServletException, IOException {
     try {
       String jwt = parseJwt(request);
-      if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
+      Claims claims = jwt != null ? parseClaims(request, jwt) : null;
+      if (jwt == null) {
+        request.setAttribute(AuthFailureReason.REQUEST_ATTRIBUTE, AuthFailureReason.MISSING_TOKEN);
+      } else if (claims != null && tokenRevocationService.isRevoked(claims.getId(), jwtUtils.getUserIdFromClaims(claims))) {
+        request.setAttribute(AuthFailureReason.REQUEST_ATTRIBUTE, AuthFailureReason.REVOKED);
+      } else if (claims != null) {
+        UserDetails userDetails = statelessPrincipal ? jwtUtils.getUserDetailsFromClaims(claims) : null;
+        if (userDetails == null) {
+          userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+        }
 
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
         UsernamePasswordAuthenticationToken authentication =
             new UsernamePasswordAuthenticationToken(
                 userDetails,
@@ -53,6 +71,15 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     filterChain.doFilter(request, response);
   }
 
+  private Claims parseClaims(HttpServletRequest request, String jwt) {
+    try {
+      return jwtUtils.getClaimsFromJwtToken(jwt);
+    } catch (JwtException | IllegalArgumentException e) {
+      request.setAttribute(AuthFailureReason.REQUEST_ATTRIBUTE, AuthFailureReason.of(e));
+      return null;
+    }
+  }
+
   private String parseJwt(HttpServletRequest request) {
     String headerAuth = request.getHeader("Authorization");
 
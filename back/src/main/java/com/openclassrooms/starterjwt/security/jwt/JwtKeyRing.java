@@ -0,0 +1,139 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.impl.TextCodec;
+
+/**
+ * Signing and verification keys, built once at startup and selected by the kid header of each token.
+ * The legacy oc.app.jwtSecret is always part of the ring under the "default" kid, which is also the key
+ * used for tokens issued before kids were introduced.
+ */
+@Component
+public class JwtKeyRing {
+  static final String DEFAULT_KEY_ID = "default";
+
+  private final Map<String, KeyEntry> entries;
+
+  private final String activeKeyId;
+
+  private final KeyEntry activeEntry;
+
+  private final JwtParser parser;
+
+  public JwtKeyRing(@Value("${oc.app.jwtSecret}") String jwtSecret, JwtKeyRingProperties properties) {
+    Map<String, KeyEntry> keys = new LinkedHashMap<>();
+    keys.put(DEFAULT_KEY_ID, hmacEntry(jwtSecret));
+    properties.getKeys().forEach((kid, key) -> keys.put(kid, buildEntry(kid, key)));
+
+    this.entries = Collections.unmodifiableMap(keys);
+    this.activeKeyId = properties.getActiveKeyId();
+    this.activeEntry = entries.get(activeKeyId);
+    if (activeEntry == null || activeEntry.signingKey == null) {
+      throw new IllegalStateException("No signing key configured for the active JWT key id " + activeKeyId);
+    }
+
+    this.parser = Jwts.parser().setSigningKeyResolver(new SigningKeyResolverAdapter() {
+      @Override
+      public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        return verificationKey(header);
+      }
+    });
+  }
+
+  /** Signs with the active key and stamps its kid. */
+  public String sign(JwtBuilder builder) {
+    return builder
+        .setHeaderParam(JwsHeader.KEY_ID, activeKeyId)
+        .signWith(activeEntry.algorithm, activeEntry.signingKey)
+        .compact();
+  }
+
+  public Claims parse(String token) {
+    return parser.parseClaimsJws(token).getBody();
+  }
+
+  public Set<String> getKeyIds() {
+    return entries.keySet();
+  }
+
+  public String getActiveKeyId() {
+    return activeKeyId;
+  }
+
+  private Key verificationKey(JwsHeader<?> header) {
+    String kid = header.getKeyId() != null ? header.getKeyId() : DEFAULT_KEY_ID;
+    KeyEntry entry = entries.get(kid);
+    if (entry == null) {
+      throw new SignatureException("Unknown JWT key id: " + kid);
+    }
+    if (!entry.algorithm.getValue().equals(header.getAlgorithm())) {
+      throw new SignatureException("JWT algorithm " + header.getAlgorithm() + " does not match key id " + kid);
+    }
+    return entry.verificationKey;
+  }
+
+  private static KeyEntry buildEntry(String kid, JwtKeyRingProperties.Key key) {
+    SignatureAlgorithm algorithm = SignatureAlgorithm.forName(key.getAlgorithm());
+
+    if (algorithm == SignatureAlgorithm.HS512) {
+      return hmacEntry(key.getSecret());
+    }
+
+    if (algorithm == SignatureAlgorithm.ES256) {
+      try {
+        KeyFactory keyFactory = KeyFactory.getInstance("EC");
+        Key publicKey = keyFactory.generatePublic(new X509EncodedKeySpec(TextCodec.BASE64.decode(key.getPublicKey())));
+        Key privateKey = key.getPrivateKey() != null
+            ? keyFactory.generatePrivate(new PKCS8EncodedKeySpec(TextCodec.BASE64.decode(key.getPrivateKey())))
+            : null;
+        return new KeyEntry(algorithm, privateKey, publicKey);
+      } catch (GeneralSecurityException | IllegalArgumentException e) {
+        throw new IllegalStateException("Invalid ES256 key for JWT key id " + kid, e);
+      }
+    }
+
+    throw new IllegalStateException("Unsupported JWT algorithm " + algorithm + " for key id " + kid);
+  }
+
+  private static KeyEntry hmacEntry(String base64Secret) {
+    // Same derivation as jjwt's signWith(alg, String) so that tokens signed with the raw secret still verify.
+    Key key = new SecretKeySpec(TextCodec.BASE64.decode(base64Secret), SignatureAlgorithm.HS512.getJcaName());
+    return new KeyEntry(SignatureAlgorithm.HS512, key, key);
+  }
+
+  private static final class KeyEntry {
+    private final SignatureAlgorithm algorithm;
+
+    private final Key signingKey;
+
+    private final Key verificationKey;
+
+    private KeyEntry(SignatureAlgorithm algorithm, Key signingKey, Key verificationKey) {
+      this.algorithm = algorithm;
+      this.signingKey = signingKey;
+      this.verificationKey = verificationKey;
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * Keys accepted for JWTs, by key id (kid). Every listed key verifies tokens, only the active one signs.
+ * Rotating is done in two deployments: add the new key everywhere, then make it the active one.
+ */
+@Component
+@ConfigurationProperties(prefix = "oc.app.jwt-key-ring")
+@Data
+public class JwtKeyRingProperties {
+  private String activeKeyId = JwtKeyRing.DEFAULT_KEY_ID;
+
+  private Map<String, Key> keys = new LinkedHashMap<>();
+
+  @Data
+  public static class Key {
+    /** HS512 or ES256. */
+    private String algorithm = "HS512";
+
+    /** Base64 HMAC secret (HS512). */
+    private String secret;
+
+    /** Base64 PKCS#8 EC private key (ES256), only needed on nodes that issue tokens. */
+    private String privateKey;
+
+    /** Base64 X.509 EC public key (ES256). */
+    private String publicKey;
+  }
+}
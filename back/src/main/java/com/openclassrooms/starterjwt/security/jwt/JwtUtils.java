@@ -1,6 +1,7 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
 import java.util.Date;
+import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,44 +17,93 @@ import io.jsonwebtoken.*;
 public class JwtUtils {
   private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
-  @Value("${oc.app.jwtSecret}")
-  private String jwtSecret;
+  private static final String ID_CLAIM = "id";
+
+  private static final String FIRST_NAME_CLAIM = "firstName";
+
+  private static final String LAST_NAME_CLAIM = "lastName";
+
+  private static final String ADMIN_CLAIM = "admin";
 
   @Value("${oc.app.jwtExpirationMs}")
   private int jwtExpirationMs;
 
-  public String generateJwtToken(Authentication authentication) {
+  private final VerifiedTokenCache verifiedTokenCache;
+
+  private final JwtKeyRing jwtKeyRing;
 
-    UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
+  public JwtUtils(VerifiedTokenCache verifiedTokenCache, JwtKeyRing jwtKeyRing) {
+    this.verifiedTokenCache = verifiedTokenCache;
+    this.jwtKeyRing = jwtKeyRing;
+  }
 
-    return Jwts.builder()
+  public String generateJwtToken(Authentication authentication) {
+    return generateJwtToken((UserDetailsImpl) authentication.getPrincipal());
+  }
+
+  public String generateJwtToken(UserDetailsImpl userPrincipal) {
+    return jwtKeyRing.sign(Jwts.builder()
+        .setId(UUID.randomUUID().toString())
         .setSubject((userPrincipal.getUsername()))
+        .claim(ID_CLAIM, userPrincipal.getId())
+        .claim(FIRST_NAME_CLAIM, userPrincipal.getFirstName())
+        .claim(LAST_NAME_CLAIM, userPrincipal.getLastName())
+        .claim(ADMIN_CLAIM, Boolean.TRUE.equals(userPrincipal.getAdmin()))
         .setIssuedAt(new Date())
-        .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-        .signWith(SignatureAlgorithm.HS512, jwtSecret)
-        .compact();
+        .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs)));
   }
 
   public String getUserNameFromJwtToken(String token) {
-    return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody().getSubject();
+    return getClaimsFromJwtToken(token).getSubject();
+  }
+
+  /**
+   * Rebuilds the principal from the claims of a verified token, without reading the user row.
+   * Returns null for tokens issued before the user claims were embedded.
+   */
+  public UserDetailsImpl getUserDetailsFromClaims(Claims claims) {
+    Long id = getUserIdFromClaims(claims);
+    if (id == null) {
+      return null;
+    }
+
+    return UserDetailsImpl
+            .builder()
+            .id(id)
+            .username(claims.getSubject())
+            .firstName(claims.get(FIRST_NAME_CLAIM, String.class))
+            .lastName(claims.get(LAST_NAME_CLAIM, String.class))
+            .admin(Boolean.TRUE.equals(claims.get(ADMIN_CLAIM, Boolean.class)))
+            .build();
+  }
+
+  public Long getUserIdFromClaims(Claims claims) {
+    return claims.get(ID_CLAIM, Long.class);
+  }
+
+  public Claims getClaimsFromJwtToken(String token) {
+    Claims claims = verifiedTokenCache.get(token);
+
+    if (claims == null) {
+      claims = jwtKeyRing.parse(token);
+      verifiedTokenCache.put(token, claims);
+    }
+
+    return claims;
   }
 
   public boolean validateJwtToken(String authToken) {
+    return getValidatedClaims(authToken) != null;
+  }
+
+  public Claims getValidatedClaims(String authToken) {
     try {
-      Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-      return true;
-    } catch (SignatureException e) {
-      logger.error("Invalid JWT signature: {}", e.getMessage());
-    } catch (MalformedJwtException e) {
-      logger.error("Invalid JWT token: {}", e.getMessage());
-    } catch (ExpiredJwtException e) {
-      logger.error("JWT token is expired: {}", e.getMessage());
-    } catch (UnsupportedJwtException e) {
-      logger.error("JWT token is unsupported: {}", e.getMessage());
-    } catch (IllegalArgumentException e) {
-      logger.error("JWT claims string is empty: {}", e.getMessage());
+      return getClaimsFromJwtToken(authToken);
+    } catch (JwtException | IllegalArgumentException e) {
+      // Counted and logged (sampled) by AuthEntryPointJwt when the request is rejected.
+      logger.debug("Invalid JWT ({}): {}", AuthFailureReason.of(e), e.getMessage());
     }
 
-    return false;
+    return null;
   }
 }
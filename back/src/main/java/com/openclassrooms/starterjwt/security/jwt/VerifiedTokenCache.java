@@ -0,0 +1,124 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Bounded cache of already verified JWTs, so that a token sent again and again (polling clients)
+ * is parsed and has its signature checked only once. Each entry lives until the token expires.
+ */
+@Component
+@ManagedResource(objectName = "com.openclassrooms.starterjwt:type=Cache,name=VerifiedTokenCache")
+public class VerifiedTokenCache {
+  private final Map<String, CachedClaims> entries = new ConcurrentHashMap<>();
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final int maxSize;
+
+  public VerifiedTokenCache(@Value("${oc.app.jwtCacheMaxSize}") int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  public Claims get(String token) {
+    CachedClaims cached = entries.get(token);
+
+    if (cached == null) {
+      misses.increment();
+      return null;
+    }
+
+    if (cached.isExpired(System.currentTimeMillis())) {
+      entries.remove(token, cached);
+      misses.increment();
+      return null;
+    }
+
+    hits.increment();
+    return cached.claims;
+  }
+
+  public void put(String token, Claims claims) {
+    Date expiration = claims.getExpiration();
+    long now = System.currentTimeMillis();
+
+    if (expiration == null || expiration.getTime() <= now) {
+      return;
+    }
+
+    if (entries.size() >= maxSize) {
+      evictExpired();
+      if (entries.size() >= maxSize) {
+        return;
+      }
+    }
+
+    entries.put(token, new CachedClaims(claims, expiration.getTime()));
+  }
+
+  @Scheduled(fixedDelayString = "${oc.app.jwtCacheSweepMs}")
+  public void evictExpired() {
+    long now = System.currentTimeMillis();
+    entries.values().removeIf(cached -> cached.isExpired(now));
+  }
+
+  @ManagedOperation
+  public void clear() {
+    entries.clear();
+  }
+
+  @ManagedAttribute
+  public int getSize() {
+    return entries.size();
+  }
+
+  @ManagedAttribute
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  @ManagedAttribute
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  @ManagedAttribute
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  @ManagedAttribute
+  public double getHitRatio() {
+    long hitCount = hits.sum();
+    long requestCount = hitCount + misses.sum();
+    return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+  }
+
+  private static final class CachedClaims {
+    private final Claims claims;
+
+    private final long expiresAtMillis;
+
+    private CachedClaims(Claims claims, long expiresAtMillis) {
+      this.claims = claims;
+      this.expiresAtMillis = expiresAtMillis;
+    }
+
+    private boolean isExpired(long now) {
+      return expiresAtMillis <= now;
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package com.openclassrooms.starterjwt.security.ratelimit;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Rejects requests over the budget of their client IP before any token parsing or password hashing.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+  private static final byte[] TOO_MANY_REQUESTS_BODY = "{\"message\":\"Error: Too many requests!\"}".getBytes(StandardCharsets.UTF_8);
+
+  @Autowired
+  private RateLimitService rateLimitService;
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    long retryAfterSeconds = rateLimitService.tryAcquire(request);
+
+    if (retryAfterSeconds > 0) {
+      response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+      response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+      response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+      response.setContentLength(TOO_MANY_REQUESTS_BODY.length);
+      response.getOutputStream().write(TOO_MANY_REQUESTS_BODY);
+      return;
+    }
+
+    filterChain.doFilter(request, response);
+  }
+}
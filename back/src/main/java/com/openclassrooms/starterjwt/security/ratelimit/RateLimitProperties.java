@@ -0,0 +1,48 @@
+package com.openclassrooms.starterjwt.security.ratelimit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Request budgets per client IP, by route (first matching route wins), and per account for logins.
+ */
+@Component
+@ConfigurationProperties(prefix = "oc.app.rate-limit")
+@Data
+public class RateLimitProperties {
+  private boolean enabled = true;
+
+  private int stripes = 64;
+
+  /** Upper bound of tracked keys per limiter. */
+  private int maxEntries = 1_000_000;
+
+  private List<Route> routes = new ArrayList<>();
+
+  private Budget account = new Budget();
+
+  @Data
+  public static class Budget {
+    private double capacity = 10;
+
+    private double refillPerSecond = 1;
+  }
+
+  @Data
+  @EqualsAndHashCode(callSuper = true)
+  @ToString(callSuper = true)
+  public static class Route extends Budget {
+    /** Ant pattern, e.g. /api/auth/login. */
+    private String pattern;
+
+    /** HTTP method, any method when empty. */
+    private String method;
+  }
+}
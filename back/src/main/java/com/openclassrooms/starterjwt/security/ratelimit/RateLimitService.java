@@ -0,0 +1,126 @@
+package com.openclassrooms.starterjwt.security.ratelimit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.stereotype.Service;
+
+import com.openclassrooms.starterjwt.exception.TooManyRequestsException;
+
+@Service
+@ManagedResource(objectName = "com.openclassrooms.starterjwt:type=RateLimit,name=RateLimitService")
+public class RateLimitService {
+  private final boolean enabled;
+
+  private final List<RouteLimiter> routeLimiters = new ArrayList<>();
+
+  private final StripedRateLimiter accountLimiter;
+
+  private final LongAdder allowedCount = new LongAdder();
+
+  private final LongAdder rejectedCount = new LongAdder();
+
+  public RateLimitService(RateLimitProperties properties) {
+    this.enabled = properties.isEnabled();
+    for (RateLimitProperties.Route route : properties.getRoutes()) {
+      routeLimiters.add(new RouteLimiter(
+          new AntPathRequestMatcher(route.getPattern(), route.getMethod()),
+          newLimiter(properties, route)));
+    }
+    this.accountLimiter = newLimiter(properties, properties.getAccount());
+  }
+
+  /**
+   * @return 0 if the request is within the budget of its client IP, otherwise the seconds to wait
+   */
+  public long tryAcquire(HttpServletRequest request) {
+    if (!enabled) {
+      return 0;
+    }
+
+    for (RouteLimiter routeLimiter : routeLimiters) {
+      if (routeLimiter.matcher.matches(request)) {
+        return count(routeLimiter.limiter.tryAcquire(request.getRemoteAddr(), System.nanoTime()));
+      }
+    }
+
+    return 0;
+  }
+
+  /**
+   * Login attempts against one account, whatever the IPs they come from.
+   */
+  public void checkAccount(String email) {
+    if (!enabled || email == null) {
+      return;
+    }
+
+    long retryAfterSeconds = count(accountLimiter.tryAcquire(email.toLowerCase(Locale.ROOT), System.nanoTime()));
+    if (retryAfterSeconds > 0) {
+      throw new TooManyRequestsException(retryAfterSeconds);
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${oc.app.rateLimit.sweepMs}")
+  public void evictIdle() {
+    long now = System.nanoTime();
+    for (RouteLimiter routeLimiter : routeLimiters) {
+      routeLimiter.limiter.evictIdle(now);
+    }
+    accountLimiter.evictIdle(now);
+  }
+
+  private long count(long waitNanos) {
+    if (waitNanos == 0) {
+      allowedCount.increment();
+      return 0;
+    }
+
+    rejectedCount.increment();
+    return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+  }
+
+  private static StripedRateLimiter newLimiter(RateLimitProperties properties, RateLimitProperties.Budget budget) {
+    return new StripedRateLimiter(properties.getStripes(), properties.getMaxEntries(),
+        budget.getCapacity(), budget.getRefillPerSecond());
+  }
+
+  @ManagedAttribute
+  public long getAllowedCount() {
+    return allowedCount.sum();
+  }
+
+  @ManagedAttribute
+  public long getRejectedCount() {
+    return rejectedCount.sum();
+  }
+
+  @ManagedAttribute
+  public int getTrackedKeyCount() {
+    int size = accountLimiter.size();
+    for (RouteLimiter routeLimiter : routeLimiters) {
+      size += routeLimiter.limiter.size();
+    }
+    return size;
+  }
+
+  private static final class RouteLimiter {
+    private final AntPathRequestMatcher matcher;
+
+    private final StripedRateLimiter limiter;
+
+    private RouteLimiter(AntPathRequestMatcher matcher, StripedRateLimiter limiter) {
+      this.matcher = matcher;
+      this.limiter = limiter;
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package com.openclassrooms.starterjwt.security.ratelimit;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Token buckets keyed by an arbitrary string (IP, email), spread over lock stripes so that concurrent
+ * clients rarely contend. Each stripe is an access-ordered map bounded in size, so the least recently
+ * seen keys are dropped first; buckets idle long enough to be full again are swept, since dropping them
+ * loses nothing. Checking a known key allocates nothing.
+ */
+public class StripedRateLimiter {
+  private final Stripe[] stripes;
+
+  private final int stripeMask;
+
+  private final double capacity;
+
+  private final double nanosPerToken;
+
+  private final long idleNanos;
+
+  public StripedRateLimiter(int stripeCount, int maxEntries, double capacity, double refillPerSecond) {
+    int size = Integer.highestOneBit(Math.max(1, stripeCount - 1) << 1);
+    int maxEntriesPerStripe = Math.max(1, maxEntries / size);
+
+    this.stripes = new Stripe[size];
+    for (int i = 0; i < size; i++) {
+      stripes[i] = new Stripe(maxEntriesPerStripe);
+    }
+    this.stripeMask = size - 1;
+    this.capacity = capacity;
+    this.nanosPerToken = 1_000_000_000d / refillPerSecond;
+    this.idleNanos = (long) Math.ceil(capacity * nanosPerToken);
+  }
+
+  /**
+   * Takes a token from the bucket of the key.
+   *
+   * @return 0 if the request is allowed, otherwise the nanoseconds until a token is available
+   */
+  public long tryAcquire(String key, long nowNanos) {
+    Stripe stripe = stripeFor(key);
+
+    synchronized (stripe) {
+      Bucket bucket = stripe.get(key);
+      if (bucket == null) {
+        bucket = new Bucket(capacity, nowNanos);
+        stripe.put(key, bucket);
+      } else {
+        bucket.refill(nowNanos, capacity, nanosPerToken);
+      }
+
+      if (bucket.tokens >= 1) {
+        bucket.tokens -= 1;
+        return 0;
+      }
+
+      return Math.max(1, (long) Math.ceil((1 - bucket.tokens) * nanosPerToken));
+    }
+  }
+
+  public int evictIdle(long nowNanos) {
+    int evicted = 0;
+
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        // Access order: the eldest entries come first, stop at the first one still in use.
+        Iterator<Bucket> iterator = stripe.values().iterator();
+        while (iterator.hasNext() && nowNanos - iterator.next().lastRefillNanos >= idleNanos) {
+          iterator.remove();
+          evicted++;
+        }
+      }
+    }
+
+    return evicted;
+  }
+
+  public int size() {
+    int size = 0;
+
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.size();
+      }
+    }
+
+    return size;
+  }
+
+  private Stripe stripeFor(String key) {
+    int hash = key.hashCode();
+    return stripes[(hash ^ (hash >>> 16)) & stripeMask];
+  }
+
+  private static final class Bucket {
+    private double tokens;
+
+    private long lastRefillNanos;
+
+    private Bucket(double tokens, long nowNanos) {
+      this.tokens = tokens;
+      this.lastRefillNanos = nowNanos;
+    }
+
+    private void refill(long nowNanos, double capacity, double nanosPerToken) {
+      long elapsed = nowNanos - lastRefillNanos;
+      if (elapsed > 0) {
+        tokens = Math.min(capacity, tokens + elapsed / nanosPerToken);
+        lastRefillNanos = nowNanos;
+      }
+    }
+  }
+
+  private static final class Stripe extends LinkedHashMap<String, Bucket> {
+    private final int maxEntries;
+
+    private Stripe(int maxEntries) {
+      super(16, 0.75f, true);
+      this.maxEntries = maxEntries;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+      return size() > maxEntries;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over strings: no false negatives, false positives at roughly the configured rate.
+ */
+final class BloomFilter {
+  private final AtomicLongArray words;
+
+  private final int bitCount;
+
+  private final int hashCount;
+
+  BloomFilter(int expectedInsertions, double falsePositiveRate) {
+    int insertions = Math.max(1, expectedInsertions);
+    long optimalBits = (long) Math.ceil(-insertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    int wordCount = (int) Math.min((optimalBits + 63) / 64, Integer.MAX_VALUE / 64);
+
+    this.words = new AtomicLongArray(Math.max(1, wordCount));
+    this.bitCount = words.length() * 64;
+    this.hashCount = Math.max(1, (int) Math.round((double) bitCount / insertions * Math.log(2)));
+  }
+
+  void put(String value) {
+    long hash = hash(value);
+    int hash1 = (int) hash;
+    int hash2 = (int) (hash >>> 32);
+
+    for (int i = 1; i <= hashCount; i++) {
+      int bit = index(hash1 + i * hash2);
+      long mask = 1L << bit;
+      words.accumulateAndGet(bit >>> 6, mask, (word, m) -> word | m);
+    }
+  }
+
+  boolean mightContain(String value) {
+    long hash = hash(value);
+    int hash1 = (int) hash;
+    int hash2 = (int) (hash >>> 32);
+
+    for (int i = 1; i <= hashCount; i++) {
+      int bit = index(hash1 + i * hash2);
+      if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private int index(int combinedHash) {
+    return (combinedHash & Integer.MAX_VALUE) % bitCount;
+  }
+
+  private static long hash(String value) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,96 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.codec.Hex;
+import org.springframework.stereotype.Service;
+
+import com.openclassrooms.starterjwt.models.RefreshToken;
+import com.openclassrooms.starterjwt.repository.RefreshTokenRepository;
+
+/**
+ * Opaque, single-use refresh tokens. Each refresh consumes the presented token and issues a new one
+ * whose lifetime starts over (sliding expiration), so an active client never has to log in again
+ * while a stolen token stops working as soon as either party uses it.
+ */
+@Service
+public class RefreshTokenService {
+  private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+  private static final int TOKEN_BYTES = 32;
+
+  private final SecureRandom secureRandom = new SecureRandom();
+
+  private final RefreshTokenRepository refreshTokenRepository;
+
+  private final long refreshExpirationMs;
+
+  public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                             @Value("${oc.app.jwtRefreshExpirationMs}") long refreshExpirationMs) {
+    this.refreshTokenRepository = refreshTokenRepository;
+    this.refreshExpirationMs = refreshExpirationMs;
+  }
+
+  public String create(Long userId) {
+    byte[] bytes = new byte[TOKEN_BYTES];
+    secureRandom.nextBytes(bytes);
+    String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+    refreshTokenRepository.save(RefreshToken.builder()
+        .tokenHash(hash(token))
+        .userId(userId)
+        .expiresAt(LocalDateTime.now().plus(refreshExpirationMs, ChronoUnit.MILLIS))
+        .build());
+
+    return token;
+  }
+
+  /**
+   * Consumes the token and returns the id of its user, or an empty optional if the token is unknown,
+   * expired or was consumed concurrently by another request.
+   */
+  public Optional<Long> consume(String token) {
+    Optional<RefreshToken> refreshToken = refreshTokenRepository.findByTokenHash(hash(token));
+    if (refreshToken.isEmpty() || refreshTokenRepository.deleteByIdReturningCount(refreshToken.get().getId()) == 0) {
+      return Optional.empty();
+    }
+
+    if (refreshToken.get().getExpiresAt().isBefore(LocalDateTime.now())) {
+      return Optional.empty();
+    }
+
+    return Optional.of(refreshToken.get().getUserId());
+  }
+
+  public void deleteByUserId(Long userId) {
+    refreshTokenRepository.deleteByUserId(userId);
+  }
+
+  @Scheduled(fixedDelayString = "${oc.app.jwtRevocationPurgeMs}", initialDelayString = "${oc.app.jwtRevocationPurgeMs}")
+  public void purgeExpired() {
+    int purged = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+    if (purged > 0) {
+      logger.info("Purged {} expired refresh tokens", purged);
+    }
+  }
+
+  static String hash(String token) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return new String(Hex.encode(digest.digest(token.getBytes(StandardCharsets.UTF_8))));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
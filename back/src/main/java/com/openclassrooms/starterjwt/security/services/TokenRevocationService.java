@@ -0,0 +1,145 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.openclassrooms.starterjwt.models.RevokedToken;
+import com.openclassrooms.starterjwt.repository.RevokedTokenRepository;
+
+/**
+ * Revoked tokens are persisted in REVOKED_TOKENS and mirrored in an in-process Bloom filter, so that the
+ * check made on every request only reaches the database for the (rare) tokens the filter flags.
+ * The filter is refreshed incrementally from the table, and rebuilt once expired rows are purged.
+ */
+@Service
+@ManagedResource(objectName = "com.openclassrooms.starterjwt:type=Revocation,name=TokenRevocationService")
+public class TokenRevocationService {
+  private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+  private static final String JTI_KEY_PREFIX = "jti:";
+
+  private static final String USER_KEY_PREFIX = "user:";
+
+  private final RevokedTokenRepository revokedTokenRepository;
+
+  private final int expectedEntries;
+
+  private final double falsePositiveRate;
+
+  private final long jwtExpirationMs;
+
+  private final Object lock = new Object();
+
+  private volatile BloomFilter bloomFilter;
+
+  private volatile boolean loaded;
+
+  private long lastSeenId;
+
+  public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                @Value("${oc.app.jwtRevocationExpectedEntries}") int expectedEntries,
+                                @Value("${oc.app.jwtRevocationFalsePositiveRate}") double falsePositiveRate,
+                                @Value("${oc.app.jwtExpirationMs}") long jwtExpirationMs) {
+    this.revokedTokenRepository = revokedTokenRepository;
+    this.expectedEntries = expectedEntries;
+    this.falsePositiveRate = falsePositiveRate;
+    this.jwtExpirationMs = jwtExpirationMs;
+    this.bloomFilter = new BloomFilter(expectedEntries, falsePositiveRate);
+  }
+
+  public boolean isRevoked(String jti, Long userId) {
+    if (!loaded) {
+      return jti != null && revokedTokenRepository.existsByJti(jti)
+          || userId != null && revokedTokenRepository.existsByUserId(userId);
+    }
+
+    BloomFilter filter = bloomFilter;
+    return jti != null && filter.mightContain(JTI_KEY_PREFIX + jti) && revokedTokenRepository.existsByJti(jti)
+        || userId != null && filter.mightContain(USER_KEY_PREFIX + userId) && revokedTokenRepository.existsByUserId(userId);
+  }
+
+  public void revokeToken(String jti, Date expiresAt) {
+    revokedTokenRepository.save(RevokedToken.builder()
+        .jti(jti)
+        .expiresAt(LocalDateTime.ofInstant(expiresAt.toInstant(), ZoneId.systemDefault()))
+        .build());
+
+    synchronized (lock) {
+      bloomFilter.put(JTI_KEY_PREFIX + jti);
+    }
+  }
+
+  /**
+   * Revokes every token issued to the user so far. The entry can be purged once the longest-lived
+   * of those tokens has expired.
+   */
+  public void revokeUser(Long userId) {
+    revokedTokenRepository.save(RevokedToken.builder()
+        .userId(userId)
+        .expiresAt(LocalDateTime.now().plus(jwtExpirationMs, ChronoUnit.MILLIS))
+        .build());
+
+    synchronized (lock) {
+      bloomFilter.put(USER_KEY_PREFIX + userId);
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${oc.app.jwtRevocationRefreshMs}")
+  public void refresh() {
+    synchronized (lock) {
+      addAll(bloomFilter, revokedTokenRepository.findByIdGreaterThanOrderByIdAsc(lastSeenId));
+      loaded = true;
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${oc.app.jwtRevocationPurgeMs}", initialDelayString = "${oc.app.jwtRevocationPurgeMs}")
+  public void purgeExpired() {
+    int purged = revokedTokenRepository.deleteExpired(LocalDateTime.now());
+    if (purged == 0) {
+      return;
+    }
+
+    synchronized (lock) {
+      BloomFilter rebuilt = new BloomFilter(expectedEntries, falsePositiveRate);
+      lastSeenId = 0;
+      addAll(rebuilt, revokedTokenRepository.findByIdGreaterThanOrderByIdAsc(lastSeenId));
+      bloomFilter = rebuilt;
+    }
+    logger.info("Purged {} expired revoked tokens and rebuilt the revocation filter", purged);
+  }
+
+  private void addAll(BloomFilter filter, List<RevokedToken> revokedTokens) {
+    for (RevokedToken revokedToken : revokedTokens) {
+      if (revokedToken.getJti() != null) {
+        filter.put(JTI_KEY_PREFIX + revokedToken.getJti());
+      }
+      if (revokedToken.getUserId() != null) {
+        filter.put(USER_KEY_PREFIX + revokedToken.getUserId());
+      }
+      lastSeenId = Math.max(lastSeenId, revokedToken.getId());
+    }
+  }
+
+  @ManagedAttribute
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  @ManagedAttribute
+  public long getLastSeenId() {
+    synchronized (lock) {
+      return lastSeenId;
+    }
+  }
+}
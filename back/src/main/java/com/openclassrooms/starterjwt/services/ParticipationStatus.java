@@ -0,0 +1,9 @@
+package com.openclassrooms.starterjwt.services;
+
+/**
+ * Outcome of a booking: a seat was taken, or the session was full and the user was queued.
+ */
+public enum ParticipationStatus {
+    PARTICIPATING,
+    WAITLISTED
+}
@@ -2,77 +2,407 @@ package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.exception.PreconditionFailedException;
 import com.openclassrooms.starterjwt.models.Session;
-import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
-import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import org.hibernate.Cache;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.persistence.EntityManagerFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 public class SessionService {
     private final SessionRepository sessionRepository;
 
-    private final UserRepository userRepository;
+    private final WaitlistRepository waitlistRepository;
 
-    public SessionService(SessionRepository sessionRepository, UserRepository userRepository) {
+    private final TeacherRepository teacherRepository;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final int pageMaxSize;
+
+    private final int exportFetchSize;
+
+    public SessionService(SessionRepository sessionRepository,
+                          WaitlistRepository waitlistRepository,
+                          TeacherRepository teacherRepository,
+                          EntityManagerFactory entityManagerFactory,
+                          @Value("${oc.app.sessionPageMaxSize}") int pageMaxSize,
+                          @Value("${oc.app.sessionExportFetchSize}") int exportFetchSize) {
         this.sessionRepository = sessionRepository;
-        this.userRepository = userRepository;
+        this.waitlistRepository = waitlistRepository;
+        this.teacherRepository = teacherRepository;
+        this.entityManagerFactory = entityManagerFactory;
+        this.pageMaxSize = pageMaxSize;
+        this.exportFetchSize = exportFetchSize;
     }
 
+    @Transactional
     public Session create(Session session) {
+        session.setSeatsTaken(session.getUsers() == null ? 0 : session.getUsers().size());
+        checkCapacity(session.getCapacity(), session.getSeatsTaken());
+        checkTeacher(session.getTeacher());
         return this.sessionRepository.save(session);
     }
 
-    public void delete(Long id) {
-        this.sessionRepository.deleteById(id);
+    /**
+     * Inserts new sessions in JDBC batches, in one transaction: either all of them are imported or none.
+     * Their teacher and participants are expected to exist.
+     */
+    @Transactional
+    public void importAll(List<Session> sessions) {
+        sessions.forEach(session -> {
+            session.setSeatsTaken(session.getUsers() == null ? 0 : session.getUsers().size());
+            checkCapacity(session.getCapacity(), session.getSeatsTaken());
+        });
+        this.sessionRepository.insertAll(sessions);
     }
 
+    /**
+     * Deletes the session, if it is still at the expected version (null: unconditionally), with bulk deletes
+     * of its participations and waitlist entries. Returns false for an unknown id.
+     */
+    @Transactional
+    public boolean delete(Long id, Long expectedVersion) {
+        // Locks the session row first, as bookings do, so that no participation is added meanwhile
+        int locked = expectedVersion == null
+                ? this.sessionRepository.lockForDelete(id)
+                : this.sessionRepository.lockForDeleteAtVersion(id, expectedVersion);
+        if (locked == 0) {
+            if (expectedVersion != null && this.sessionRepository.findVersionById(id) != null) {
+                throw new PreconditionFailedException();
+            }
+            return false;
+        }
+
+        this.waitlistRepository.deleteBySessionId(id);
+        this.sessionRepository.deleteParticipationsBySessionId(id);
+        return this.sessionRepository.deleteByIdReturningCount(id) == 1;
+    }
+
+    /**
+     * Removes a user about to be deleted from every session and waitlist: the seats are released in bulk
+     * and handed to the first waiting users.
+     */
+    @Transactional
+    public void removeUser(Long userId) {
+        List<Long> sessionIds = this.sessionRepository.findIdsByParticipant(userId);
+
+        if (!sessionIds.isEmpty()) {
+            this.sessionRepository.releaseSeatsOfUser(userId);
+            this.sessionRepository.deleteParticipationsByUserId(userId);
+        }
+        this.waitlistRepository.deleteByUserId(userId);
+        sessionIds.forEach(this::promoteWaitlisted);
+    }
+
+    /**
+     * The first sessions in (date, id) order, no more than a page: the list costs the same whatever the size
+     * of the table, and the following sessions are read with {@link #findPage}.
+     */
+    @Transactional(readOnly = true)
     public List<Session> findAll() {
-        return this.sessionRepository.findAll();
+        return this.sessionRepository.findPage(null, null, null, null, null, pageMaxSize);
+    }
+
+    /**
+     * Keyset pagination on (date, id): the cursor is the key of the last session of the previous page,
+     * so fetching any page costs the same whatever its position.
+     */
+    @Transactional(readOnly = true)
+    public SessionPage findPage(String cursor, int size, Date from, Date to, Long teacherId) {
+        int limit = Math.max(1, Math.min(size, pageMaxSize));
+        Date afterDate = null;
+        Long afterId = null;
+
+        if (cursor != null) {
+            long[] key = decodeCursor(cursor);
+            afterDate = new Date(key[0]);
+            afterId = key[1];
+        }
+
+        // One extra row tells whether there is a next page
+        List<Session> sessions = this.sessionRepository.findPage(afterDate, afterId, from, to, teacherId, limit + 1);
+        if (sessions.size() <= limit) {
+            return new SessionPage(sessions, null);
+        }
+
+        List<Session> page = sessions.subList(0, limit);
+        return new SessionPage(page, encodeCursor(page.get(limit - 1)));
+    }
+
+    /**
+     * Hands every session to the consumer as it is read from the cursor, in (date, id) order.
+     * The participant count of an exported session is its seats taken.
+     */
+    @Transactional(readOnly = true)
+    public void export(Consumer<Session> consumer) {
+        this.sessionRepository.scrollForExport(exportFetchSize, consumer);
     }
 
+    @Transactional(readOnly = true)
     public Session getById(Long id) {
         return this.sessionRepository.findById(id).orElse(null);
     }
 
+    /**
+     * Current version of the session without loading it, or null for an unknown id.
+     */
+    @Transactional(readOnly = true)
+    public Long getVersion(Long id) {
+        return this.sessionRepository.findVersionById(id);
+    }
+
+    /**
+     * The participants sent with the session replace the current ones, so the seat counter is recounted,
+     * and waiting users are promoted if the capacity was raised. More participants than seats is a 400.
+     * The version of the session is the one the client expects, and the merge fails with a 412 if the session
+     * changed since. Without an expected version the write is unconditional: the session row is locked before
+     * its version is read, so a concurrent booking cannot fail the merge.
+     */
+    @Transactional
     public Session update(Long id, Session session) {
+        boolean conditional = session.getVersion() != null;
+        if (!conditional && this.sessionRepository.lockById(id) == null) {
+            throw new NotFoundException();
+        }
+        Long currentVersion = this.sessionRepository.findVersionById(id);
+        if (currentVersion == null) {
+            throw new NotFoundException();
+        }
+        if (conditional) {
+            checkVersion(currentVersion, session.getVersion());
+        } else {
+            session.setVersion(currentVersion);
+        }
+        checkCapacity(session.getCapacity(), session.getUsers() == null ? 0 : session.getUsers().size());
+        checkTeacher(session.getTeacher());
+
         session.setId(id);
-        return this.sessionRepository.save(session);
+        Session updatedSession;
+        try {
+            updatedSession = this.sessionRepository.saveAndFlush(session);
+        } catch (OptimisticLockingFailureException e) {
+            // Only a conditional merge gets here, the row being locked otherwise
+            throw new PreconditionFailedException();
+        }
+
+        this.sessionRepository.lockById(id);
+        this.sessionRepository.resyncSeats(id);
+        promoteWaitlisted(id);
+
+        return updatedSession;
     }
 
-    public void participate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        User user = this.userRepository.findById(userId).orElse(null);
-        if (session == null || user == null) {
+    /**
+     * Applies the changes to the managed session: with dynamic updates only the modified columns are written,
+     * and PARTICIPATE is only rewritten when the changes replace the participants. Returns null for an unknown id.
+     * Changes leaving more participants than seats are a 400. Like {@link #update}, a patch without an expected
+     * version locks the session row first, and only a patch with one can fail with a 412.
+     */
+    @Transactional
+    public Session patch(Long id, Long expectedVersion, Consumer<Session> changes) {
+        if (expectedVersion == null && this.sessionRepository.lockById(id) == null) {
+            return null;
+        }
+        Session session = this.sessionRepository.findWithoutParticipantsById(id).orElse(null);
+        if (session == null) {
+            return null;
+        }
+        if (expectedVersion != null) {
+            checkVersion(session.getVersion(), expectedVersion);
+        }
+
+        Integer capacity = session.getCapacity();
+        Teacher teacher = session.getTeacher();
+        changes.accept(session);
+        // The lazy participants are only loaded if the changes touched them
+        boolean participantsChanged = session.getUsers() != null && Hibernate.isInitialized(session.getUsers());
+        // With an expected version the row is not locked yet: a booking committed since the read fails the flush
+        checkCapacity(session.getCapacity(), participantsChanged ? session.getUsers().size() : session.getSeatsTaken());
+        if (session.getTeacher() != teacher) {
+            checkTeacher(session.getTeacher());
+        }
+
+        try {
+            this.sessionRepository.flush();
+        } catch (OptimisticLockingFailureException e) {
+            // Only a conditional patch gets here, the row being locked otherwise
+            throw new PreconditionFailedException();
+        }
+
+        if (participantsChanged || !Objects.equals(capacity, session.getCapacity())) {
+            this.sessionRepository.lockById(id);
+            this.sessionRepository.resyncSeats(id);
+            promoteWaitlisted(id);
+        }
+        return session;
+    }
+
+    /**
+     * Takes a seat with a conditional update of the seat counter, so that the capacity holds under concurrent
+     * bookings; once the session is full the user is queued on its waitlist instead.
+     */
+    @Transactional
+    public ParticipationStatus participate(Long id, Long userId) {
+        if (this.sessionRepository.reserveSeat(id) == 1) {
+            insertParticipation(id, userId);
+            return ParticipationStatus.PARTICIPATING;
+        }
+
+        // Full (or unknown) session: from here on the session row is locked, so a seat released meanwhile
+        // is either seen by the second attempt or handed to the waitlist by the releasing transaction
+        if (this.sessionRepository.lockById(id) == null) {
             throw new NotFoundException();
         }
+        if (this.sessionRepository.reserveSeat(id) == 1) {
+            insertParticipation(id, userId);
+            return ParticipationStatus.PARTICIPATING;
+        }
 
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(alreadyParticipate) {
+        int queued;
+        try {
+            queued = this.waitlistRepository.insertEntry(id, userId);
+        } catch (DataIntegrityViolationException e) {
+            // Duplicate (session_id, user_id) key: already waiting
             throw new BadRequestException();
         }
 
-        session.getUsers().add(user);
-
-        this.sessionRepository.save(session);
+        if (queued == 0) {
+            if (this.sessionRepository.countParticipation(id, userId) > 0) {
+                throw new BadRequestException();
+            }
+            throw new NotFoundException();
+        }
+        return ParticipationStatus.WAITLISTED;
     }
 
+    /**
+     * Leaves the session, or its waitlist. A released seat goes to the first waiting user.
+     */
+    @Transactional
     public void noLongerParticipate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        if (session == null) {
+        if (this.sessionRepository.lockById(id) == null) {
             throw new NotFoundException();
         }
 
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(!alreadyParticipate) {
+        if (this.sessionRepository.deleteParticipation(id, userId) == 1) {
+            evictParticipants(id);
+            this.sessionRepository.releaseSeat(id);
+            promoteWaitlisted(id);
+            return;
+        }
+
+        if (this.waitlistRepository.deleteEntry(id, userId) == 0) {
+            throw new BadRequestException();
+        }
+    }
+
+    /**
+     * Expects the session row to be locked by the caller.
+     */
+    private void promoteWaitlisted(Long id) {
+        Optional<WaitlistEntry> next;
+        while ((next = this.waitlistRepository.findFirstBySessionIdOrderByIdAsc(id)).isPresent()
+                && this.sessionRepository.reserveSeat(id) == 1) {
+            this.waitlistRepository.deleteEntry(id, next.get().getUserId());
+            this.sessionRepository.insertParticipation(id, next.get().getUserId());
+            evictParticipants(id);
+        }
+    }
+
+    /**
+     * The booking statements are native, so the participant list of the session is evicted here, and again once
+     * the transaction completes: a list loaded meanwhile from the rows committed before is not left cached.
+     */
+    private void evictParticipants(Long id) {
+        Cache cache = this.entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        cache.evictCollectionData(Session.PARTICIPANTS_CACHE_REGION, id);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evictCollectionData(Session.PARTICIPANTS_CACHE_REGION, id);
+                }
+            });
+        }
+    }
+
+    /**
+     * The teacher is only a reference, so its id is checked without loading it. A teacher deleted since
+     * still fails on the foreign key, which is not reported as a bad request.
+     */
+    private void checkTeacher(Teacher teacher) {
+        if (teacher != null && !this.teacherRepository.existsById(teacher.getId())) {
+            throw new BadRequestException("Unknown teacher id");
+        }
+    }
+
+    /**
+     * Seats are only checked one by one when booked: participants written as a whole must fit in the capacity.
+     */
+    private static void checkCapacity(Integer capacity, int participants) {
+        if (capacity != null && participants > capacity) {
+            throw new BadRequestException("Capacity exceeded: " + participants + " participants for " + capacity + " seats");
+        }
+    }
+
+    private static void checkVersion(Long currentVersion, Long expectedVersion) {
+        if (!Objects.equals(currentVersion, expectedVersion)) {
+            throw new PreconditionFailedException();
+        }
+    }
+
+    private void insertParticipation(Long id, Long userId) {
+        int inserted;
+        try {
+            inserted = this.sessionRepository.insertParticipation(id, userId);
+        } catch (DataIntegrityViolationException e) {
+            // Duplicate (session_id, user_id) key: already participating. The seat is given back by the rollback
             throw new BadRequestException();
         }
 
-        session.setUsers(session.getUsers().stream().filter(user -> !user.getId().equals(userId)).collect(Collectors.toList()));
+        if (inserted == 0) {
+            throw new NotFoundException();
+        }
+        evictParticipants(id);
+    }
+
+    static String encodeCursor(Session session) {
+        String key = session.getDate().getTime() + ":" + session.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
 
-        this.sessionRepository.save(session);
+    static long[] decodeCursor(String cursor) {
+        try {
+            String[] key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (key.length != 2) {
+                throw new BadRequestException();
+            }
+            return new long[] { Long.parseLong(key[0]), Long.parseLong(key[1]) };
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException();
+        }
     }
 }
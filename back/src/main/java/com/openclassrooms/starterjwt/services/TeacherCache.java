@@ -0,0 +1,179 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.Teacher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded read-through cache of teachers, by id and as the full list. Every entry records the version of the
+ * teachers it was loaded at; any teacher write bumps the version, which invalidates all entries at once.
+ * A value loaded while a write happens is stored at the version read before loading, so it is never served.
+ * Nothing is stored for the replica max lag after a write either, since a read routed to the replica
+ * may still return the previous state.
+ * Cached teachers are shared: callers must not modify them.
+ */
+@Component
+@ManagedResource(objectName = "com.openclassrooms.starterjwt:type=Cache,name=TeacherCache")
+public class TeacherCache {
+    private final Map<Long, Versioned<Teacher>> entries = new ConcurrentHashMap<>();
+
+    private volatile Versioned<List<Teacher>> all;
+
+    private final AtomicLong version = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final int maxSize;
+
+    private final long settleMs;
+
+    private volatile long settledAtMillis;
+
+    public TeacherCache(@Value("${oc.app.teacherCacheMaxSize}") int maxSize,
+                        @Value("${oc.app.readReplica.maxLagMs}") long settleMs) {
+        this.maxSize = maxSize;
+        this.settleMs = settleMs;
+    }
+
+    /**
+     * The cached teacher, or the one returned by the loader. Unknown ids (null) are not cached.
+     */
+    public Teacher get(Long id, Function<Long, Teacher> loader) {
+        long current = version.get();
+        Versioned<Teacher> cached = entries.get(id);
+
+        if (cached != null && cached.version == current) {
+            hits.increment();
+            return cached.value;
+        }
+
+        misses.increment();
+        Teacher teacher = loader.apply(id);
+        if (teacher != null) {
+            put(id, new Versioned<>(teacher, current));
+        }
+        return teacher;
+    }
+
+    public List<Teacher> getAll(Supplier<List<Teacher>> loader) {
+        long current = version.get();
+        Versioned<List<Teacher>> cached = all;
+
+        if (cached != null && cached.version == current) {
+            hits.increment();
+            return cached.value;
+        }
+
+        misses.increment();
+        List<Teacher> teachers = List.copyOf(loader.get());
+        if (isSettled()) {
+            all = new Versioned<>(teachers, current);
+        }
+        return teachers;
+    }
+
+    /**
+     * Invalidates every entry. Within a transaction the version is bumped again once it completes, so that
+     * nothing read before the commit (the previous state) outlives it.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+        settledAtMillis = System.currentTimeMillis() + settleMs;
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    version.incrementAndGet();
+                    settledAtMillis = System.currentTimeMillis() + settleMs;
+                }
+            });
+        }
+    }
+
+    private boolean isSettled() {
+        return System.currentTimeMillis() >= settledAtMillis;
+    }
+
+    private void put(Long id, Versioned<Teacher> versioned) {
+        if (!isSettled()) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            evictStale();
+            if (entries.size() >= maxSize) {
+                return;
+            }
+        }
+        entries.put(id, versioned);
+    }
+
+    private void evictStale() {
+        long current = version.get();
+        entries.values().removeIf(cached -> cached.version != current);
+    }
+
+    @ManagedOperation
+    public void clear() {
+        entries.clear();
+        all = null;
+    }
+
+    @ManagedAttribute
+    public int getSize() {
+        return entries.size() + (all != null ? 1 : 0);
+    }
+
+    @ManagedAttribute
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @ManagedAttribute
+    public long getVersion() {
+        return version.get();
+    }
+
+    @ManagedAttribute
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @ManagedAttribute
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @ManagedAttribute
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long requestCount = hitCount + misses.sum();
+        return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+    }
+
+    private static final class Versioned<T> {
+        private final T value;
+
+        private final long version;
+
+        private Versioned(T value, long version) {
+            this.value = value;
+            this.version = version;
+        }
+    }
+}
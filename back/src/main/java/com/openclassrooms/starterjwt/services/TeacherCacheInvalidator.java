@@ -0,0 +1,26 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.Teacher;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Entity listener of Teacher, created by Hibernate through the Spring bean container: whatever the code path,
+ * writing a teacher invalidates the teacher cache.
+ */
+public class TeacherCacheInvalidator {
+    private final TeacherCache teacherCache;
+
+    public TeacherCacheInvalidator(TeacherCache teacherCache) {
+        this.teacherCache = teacherCache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void onWrite(Teacher teacher) {
+        this.teacherCache.invalidate();
+    }
+}
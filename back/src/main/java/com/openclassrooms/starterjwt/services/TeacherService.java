@@ -3,22 +3,56 @@ package com.openclassrooms.starterjwt.services;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class TeacherService {
     private final TeacherRepository teacherRepository;
 
-    public TeacherService(TeacherRepository teacherRepository) {
+    private final TeacherCache teacherCache;
+
+    public TeacherService(TeacherRepository teacherRepository, TeacherCache teacherCache) {
         this.teacherRepository = teacherRepository;
+        this.teacherCache = teacherCache;
     }
 
+    /**
+     * Served from the teacher cache: the returned teachers are shared and must not be modified.
+     */
+    @Transactional(readOnly = true)
     public List<Teacher> findAll() {
-        return this.teacherRepository.findAll();
+        return this.teacherCache.getAll(this.teacherRepository::findAll);
     }
 
+    /**
+     * Served from the teacher cache: the returned teacher is shared and must not be modified.
+     */
+    @Transactional(readOnly = true)
     public Teacher findById(Long id) {
-        return this.teacherRepository.findById(id).orElse(null);
+        return this.teacherCache.get(id, teacherId -> this.teacherRepository.findById(teacherId).orElse(null));
+    }
+
+    /**
+     * Proxy carrying only the id, enough to set the foreign key of a session without a SELECT.
+     * SessionService checks that the id exists before the session is written.
+     */
+    public Teacher getReference(Long id) {
+        return this.teacherRepository.getById(id);
+    }
+
+    /**
+     * The ids among these that belong to a teacher, from one query.
+     */
+    @Transactional(readOnly = true)
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(this.teacherRepository.findExistingIds(ids));
     }
 }
@@ -1,22 +1,114 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class UserService {
     private final UserRepository userRepository;
 
-    public UserService(UserRepository userRepository) {
+    private final SessionService sessionService;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public UserService(UserRepository userRepository, SessionService sessionService, EntityManagerFactory entityManagerFactory) {
         this.userRepository = userRepository;
+        this.sessionService = sessionService;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Deletes the user having this id and email with one DELETE, after its participations.
+     * The user row is locked first: when there is no such user, NotFoundException is thrown before any session
+     * is touched, so that nobody can release the seats or lock the sessions of another user.
+     */
+    @Transactional
+    public void delete(Long id, String email) {
+        if (this.userRepository.lockByIdAndEmail(id, email) == null) {
+            throw new NotFoundException();
+        }
+        this.sessionService.removeUser(id);
+
+        if (this.userRepository.deleteByIdAndEmailReturningCount(id, email) == 0) {
+            throw new NotFoundException();
+        }
+    }
+
+    /**
+     * Drops what the second-level cache may still hold about the user once it is deleted: its entity, the
+     * participant lists that may name it, and cached query results such as findByEmail. A created user needs
+     * none of this: it is in no participant list yet, and the insert already invalidates the queries on USERS.
+     */
+    public void evictFromCache(Long id) {
+        Cache cache = this.entityManagerFactory.unwrap(SessionFactory.class).getCache();
+
+        if (id != null) {
+            cache.evictEntityData(User.class, id);
+        }
+        cache.evictCollectionData(Session.PARTICIPANTS_CACHE_REGION);
+        cache.evictDefaultQueryRegion();
     }
 
-    public void delete(Long id) {
-        this.userRepository.deleteById(id);
+    @Transactional(readOnly = true)
+    public boolean existsById(Long id) {
+        return this.userRepository.existsById(id);
     }
 
+    @Transactional(readOnly = true)
     public User findById(Long id) {
         return this.userRepository.findById(id).orElse(null);
     }
+
+    /**
+     * Loads the users with one query. Unknown ids are rejected instead of being dropped or mapped to null.
+     */
+    @Transactional(readOnly = true)
+    public List<User> findAllById(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        List<User> users = this.userRepository.findAllById(distinctIds);
+        if (users.size() != distinctIds.size()) {
+            Set<Long> foundIds = users.stream().map(User::getId).collect(Collectors.toSet());
+            distinctIds.removeAll(foundIds);
+            throw new BadRequestException("Unknown user ids: " + distinctIds);
+        }
+        return users;
+    }
+
+    /**
+     * The ids among these that belong to a user, from one query.
+     */
+    @Transactional(readOnly = true)
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(this.userRepository.findExistingIds(ids));
+    }
+
+    /**
+     * Proxy carrying only the id, enough to write a participation without a SELECT.
+     */
+    public User getReference(Long id) {
+        return this.userRepository.getById(id);
+    }
 }
@@ -0,0 +1,5 @@
+-- Written to the primary and read back from the read replica to measure the replication lag
+CREATE TABLE `REPLICA_HEARTBEAT` (
+  `id` INT PRIMARY KEY,
+  `beat_ms` BIGINT NOT NULL
+);
@@ -0,0 +1,3 @@
+-- Sessions of a user (user removal, seat release): the (session_id, user_id) primary key cannot serve
+-- lookups by user_id, and the index MySQL creates for the foreign key is not covering
+CREATE INDEX `IDX_PARTICIPATE_USER_ID_SESSION_ID` ON `PARTICIPATE` (`user_id`, `session_id`);
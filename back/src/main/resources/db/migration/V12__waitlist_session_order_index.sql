@@ -0,0 +1,2 @@
+-- First waiting user of a session: rows of the session read in queue order, without a filesort
+CREATE INDEX `IDX_WAITLIST_SESSION_ID_ID` ON `WAITLIST` (`session_id`, `id`);
@@ -0,0 +1,11 @@
+CREATE TABLE `REVOKED_TOKENS` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT,
+  `jti` VARCHAR(36),
+  `user_id` INT,
+  `expires_at` DATETIME NOT NULL,
+  `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX `IDX_REVOKED_TOKENS_JTI` ON `REVOKED_TOKENS` (`jti`);
+CREATE INDEX `IDX_REVOKED_TOKENS_USER_ID` ON `REVOKED_TOKENS` (`user_id`);
+CREATE INDEX `IDX_REVOKED_TOKENS_EXPIRES_AT` ON `REVOKED_TOKENS` (`expires_at`);
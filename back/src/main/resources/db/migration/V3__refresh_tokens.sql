@@ -0,0 +1,10 @@
+CREATE TABLE `REFRESH_TOKENS` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT,
+  `token_hash` CHAR(64) NOT NULL UNIQUE,
+  `user_id` INT NOT NULL,
+  `expires_at` DATETIME NOT NULL,
+  `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX `IDX_REFRESH_TOKENS_USER_ID` ON `REFRESH_TOKENS` (`user_id`);
+CREATE INDEX `IDX_REFRESH_TOKENS_EXPIRES_AT` ON `REFRESH_TOKENS` (`expires_at`);
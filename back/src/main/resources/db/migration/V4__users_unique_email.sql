@@ -0,0 +1,2 @@
+-- Registration relies on this key to reject a taken email in a single insert
+ALTER TABLE `USERS` ADD CONSTRAINT `UK_USERS_EMAIL` UNIQUE (`email`);
@@ -0,0 +1,9 @@
+-- Incomplete and duplicate participations would prevent the key from being created
+DELETE FROM `PARTICIPATE` WHERE `session_id` IS NULL OR `user_id` IS NULL;
+
+CREATE TEMPORARY TABLE `PARTICIPATE_DISTINCT` AS SELECT DISTINCT `session_id`, `user_id` FROM `PARTICIPATE`;
+DELETE FROM `PARTICIPATE`;
+INSERT INTO `PARTICIPATE` (`session_id`, `user_id`) SELECT `session_id`, `user_id` FROM `PARTICIPATE_DISTINCT`;
+DROP TEMPORARY TABLE `PARTICIPATE_DISTINCT`;
+
+ALTER TABLE `PARTICIPATE` ADD PRIMARY KEY (`session_id`, `user_id`);
@@ -0,0 +1,14 @@
+ALTER TABLE `SESSIONS` ADD COLUMN `capacity` INT, ADD COLUMN `seats_taken` INT NOT NULL DEFAULT 0;
+-- Existing sessions have no capacity: their seat counter starts at their current participant count
+UPDATE `SESSIONS` s SET `seats_taken` = (SELECT COUNT(*) FROM `PARTICIPATE` p WHERE p.`session_id` = s.`id`);
+
+CREATE TABLE `WAITLIST` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT,
+  `session_id` INT NOT NULL,
+  `user_id` INT NOT NULL,
+  `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  UNIQUE (`session_id`, `user_id`)
+);
+
+ALTER TABLE `WAITLIST` ADD FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`);
+ALTER TABLE `WAITLIST` ADD FOREIGN KEY (`session_id`) REFERENCES `SESSIONS` (`id`);
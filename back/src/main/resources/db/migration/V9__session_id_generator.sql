@@ -0,0 +1,7 @@
+-- Session ids are handed out by blocks of 50 from this table, so that session inserts can be batched;
+-- the first block starts past the existing ids
+CREATE TABLE `ID_GENERATOR` (
+  `name` VARCHAR(50) PRIMARY KEY,
+  `next_value` BIGINT NOT NULL
+);
+INSERT INTO `ID_GENERATOR` (`name`, `next_value`) SELECT 'SESSIONS', COALESCE(MAX(`id`), 0) + 50 FROM `SESSIONS`;
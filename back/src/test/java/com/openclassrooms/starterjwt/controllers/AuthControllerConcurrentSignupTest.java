@@ -0,0 +1,77 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class AuthControllerConcurrentSignupTest {
+    private static final int SIGNUPS = 16;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void givenConcurrentSignupsWithTheSameEmail_whenRequestsAreMadeToRegister_thenExactlyOneSucceeds() throws Exception {
+        var signupRequestJson = "{ \"email\": \"burst@test.com\", \"password\": \"test!1234\", \"firstName\": \"Test\", \"lastName\": \"Test\" }";
+        var start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(SIGNUPS);
+        List<Future<Integer>> statuses = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < SIGNUPS; i++) {
+                statuses.add(executor.submit(() -> {
+                    start.await();
+                    return mockMvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON_VALUE).content(signupRequestJson))
+                            .andReturn().getResponse().getStatus();
+                }));
+            }
+            start.countDown();
+
+            var okCount = 0;
+            var badRequestCount = 0;
+            for (Future<Integer> status : statuses) {
+                int code = status.get(30, TimeUnit.SECONDS);
+                if (code == 200) {
+                    okCount++;
+                } else if (code == 400) {
+                    badRequestCount++;
+                }
+            }
+
+            assertThat(okCount).isEqualTo(1);
+            assertThat(badRequestCount).isEqualTo(SIGNUPS - 1);
+            assertThat(userRepository.findByEmail("burst@test.com")).isPresent();
+            assertThat(userRepository.count()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
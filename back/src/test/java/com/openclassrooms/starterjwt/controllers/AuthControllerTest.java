@@ -1,24 +1,35 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.openclassrooms.starterjwt.exception.TooManyRequestsException;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.ratelimit.RateLimitService;
+import com.openclassrooms.starterjwt.security.services.RefreshTokenService;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.util.NestedServletException;
 
+import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.Locale;
 import java.util.Optional;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -34,6 +45,10 @@ class AuthControllerTest {
     private AuthenticationManager authenticationManager;
     @MockBean
     private UserRepository userRepository;
+    @MockBean
+    private RefreshTokenService refreshTokenService;
+    @MockBean
+    private RateLimitService rateLimitService;
 
     @BeforeEach
     void init() {
@@ -63,10 +78,11 @@ class AuthControllerTest {
                 .build();
         var authentication = new UsernamePasswordAuthenticationToken(userDetails, user.getPassword());
         when(authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(user.getEmail(), user.getPassword()))).thenReturn(authentication);
-        when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+        when(refreshTokenService.create(user.getId())).thenReturn("refresh");
 
         mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON_VALUE).content(loginRequestJson))
                 .andExpect(status().isOk())
+                .andExpect(jsonPath("$.refreshToken").value("refresh"))
                 .andExpect(jsonPath("$.id").value(user.getId()))
                 .andExpect(jsonPath("$.username").value(user.getEmail()))
                 .andExpect(jsonPath("$.firstName").value(user.getFirstName()))
@@ -75,32 +91,125 @@ class AuthControllerTest {
                 .andExpect(jsonPath("$.token").exists());
 
         verify(authenticationManager, times(1)).authenticate(new UsernamePasswordAuthenticationToken(user.getEmail(), user.getPassword()));
-        verify(userRepository, times(1)).findByEmail(user.getEmail());
+        verify(userRepository, never()).findByEmail(any());
+    }
+
+    @Test
+    void givenGoodCredentialsOfAnAdmin_whenRequestIsMadeToLogin_thenReturnsTheAdminFlagOfThePrincipal() throws Exception {
+        var loginRequestJson = "{ \"email\": \"test@test.com\", \"password\": \"test!1234\" }";
+        var userDetails = UserDetailsImpl.builder()
+                .username(user.getEmail())
+                .password(user.getPassword())
+                .admin(true)
+                .id(user.getId())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .build();
+        var authentication = new UsernamePasswordAuthenticationToken(userDetails, user.getPassword());
+        when(authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(user.getEmail(), user.getPassword()))).thenReturn(authentication);
+
+        mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON_VALUE).content(loginRequestJson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.admin").value(true));
+
+        verify(userRepository, never()).findByEmail(any());
+    }
+
+    @Test
+    void givenTooManyLoginAttemptsOnTheAccount_whenRequestIsMadeToLogin_thenReturnsResponseWithTooManyRequestsStatusWithoutAuthenticating() throws Exception {
+        var loginRequestJson = "{ \"email\": \"test@test.com\", \"password\": \"test!1234\" }";
+        doThrow(new TooManyRequestsException(20)).when(rateLimitService).checkAccount(user.getEmail());
+
+        mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON_VALUE).content(loginRequestJson))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "20"));
+
+        verify(authenticationManager, never()).authenticate(any());
+    }
+
+    @Test
+    void givenAValidRefreshToken_whenRequestIsMadeToRefresh_thenReturnsResponseWithOKStatusAndRotatedTokens() throws Exception {
+        var refreshRequestJson = "{ \"refreshToken\": \"refresh\" }";
+        when(refreshTokenService.consume("refresh")).thenReturn(Optional.of(user.getId()));
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(refreshTokenService.create(user.getId())).thenReturn("rotated");
+
+        mockMvc.perform(post("/api/auth/refresh").contentType(MediaType.APPLICATION_JSON_VALUE).content(refreshRequestJson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").exists())
+                .andExpect(jsonPath("$.refreshToken").value("rotated"))
+                .andExpect(jsonPath("$.id").value(user.getId()))
+                .andExpect(jsonPath("$.username").value(user.getEmail()));
+
+        verify(refreshTokenService, times(1)).consume("refresh");
+        verify(refreshTokenService, times(1)).create(user.getId());
+    }
+
+    @Test
+    void givenAnInvalidRefreshToken_whenRequestIsMadeToRefresh_thenReturnsResponseWithUnauthorizedStatusAndErrorMessageResponseJson() throws Exception {
+        var refreshRequestJson = "{ \"refreshToken\": \"reused\" }";
+        when(refreshTokenService.consume("reused")).thenReturn(Optional.empty());
+
+        mockMvc.perform(post("/api/auth/refresh").contentType(MediaType.APPLICATION_JSON_VALUE).content(refreshRequestJson))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.message").value("Error: Refresh token is invalid or expired!"));
+
+        verify(refreshTokenService, never()).create(any());
     }
 
     @Test
     void givenASignupRequestWithEmailAlreadyTaken_whenRequestIsMadeToRegister_thenReturnsResponseWithBadRequestStatusAndErrorMessageResponseJson() throws Exception {
         var signupRequestJson = "{ \"email\": \"already.taken@test.com\", \"password\": \"test!1234\", \"firstName\": \"Test\", \"lastName\": \"Test\" }";
-        when(userRepository.existsByEmail("already.taken@test.com")).thenReturn(true);
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(new DataIntegrityViolationException("Duplicate entry",
+                new ConstraintViolationException("Duplicate entry", new SQLException(), "USERS.UK_USERS_EMAIL")));
 
         mockMvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON_VALUE).content(signupRequestJson))
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.message").value("Error: Email is already taken!"));
 
-        verify(userRepository, times(1)).existsByEmail("already.taken@test.com");
+        verify(userRepository, times(1)).saveAndFlush(any(User.class));
+        verify(userRepository, never()).existsByEmail(any());
+    }
+
+    @Test
+    void givenALowerCaseConstraintNameUnderATurkishLocale_whenRequestIsMadeToRegister_thenStillReportsTheEmailAsTaken() throws Exception {
+        var signupRequestJson = "{ \"email\": \"already.taken@test.com\", \"password\": \"test!1234\", \"firstName\": \"Test\", \"lastName\": \"Test\" }";
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(new DataIntegrityViolationException("Duplicate entry",
+                new ConstraintViolationException("Duplicate entry", new SQLException(), "public.uk_users_email")));
+        var defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+
+        try {
+            mockMvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON_VALUE).content(signupRequestJson))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.message").value("Error: Email is already taken!"));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    void givenAnotherIntegrityViolation_whenRequestIsMadeToRegister_thenDoesNotReportTheEmailAsTaken() {
+        var signupRequestJson = "{ \"email\": \"test@test.com\", \"password\": \"test!1234\", \"firstName\": \"Test\", \"lastName\": \"Test\" }";
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(new DataIntegrityViolationException("Data too long",
+                new ConstraintViolationException("Data too long", new SQLException(), null)));
+
+        var exception = assertThrows(NestedServletException.class, () ->
+                mockMvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON_VALUE).content(signupRequestJson)));
+
+        assertThat(exception.getCause()).isInstanceOf(DataIntegrityViolationException.class);
     }
 
     @Test
     void givenAValidSignupRequest_whenRequestIsMadeToRegister_thenReturnsResponseWithOKStatusAndSuccessMessageResponseJson() throws Exception {
         var signupRequestJson = "{ \"email\": \"test@test.com\", \"password\": \"test!1234\", \"firstName\": \"Test\", \"lastName\": \"Test\" }";
-        when(userRepository.existsByEmail(user.getEmail())).thenReturn(false);
-        when(userRepository.save(any(User.class))).thenReturn(user);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(user);
 
         mockMvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON_VALUE).content(signupRequestJson))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.message").value("User registered successfully!"));
 
-        verify(userRepository, times(1)).existsByEmail(user.getEmail());
-        verify(userRepository, times(1)).save(any(User.class));
+        verify(userRepository, never()).existsByEmail(any());
+        verify(userRepository, times(1)).saveAndFlush(any(User.class));
     }
 }
\ No newline at end of file
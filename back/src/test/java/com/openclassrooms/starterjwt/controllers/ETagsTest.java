@@ -0,0 +1,34 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ETagsTest {
+    @Test
+    void givenAVersion_whenCallIsMadeToOf_thenReturnsAQuotedTag() {
+        assertThat(ETags.of(3L)).isEqualTo("\"3\"");
+    }
+
+    @Test
+    void givenStrongWeakAndWildcardTags_whenCallIsMadeToParseVersion_thenReturnsTheExpectedVersion() {
+        assertThat(ETags.parseVersion("\"3\"")).isEqualTo(3L);
+        assertThat(ETags.parseVersion("W/\"3\"")).isEqualTo(3L);
+        assertThat(ETags.parseVersion("*")).isNull();
+        assertThat(ETags.parseVersion(null)).isNull();
+    }
+
+    @Test
+    void givenAForeignTag_whenCallIsMadeToParseVersion_thenThrowsNumberFormatException() {
+        assertThrows(NumberFormatException.class, () -> ETags.parseVersion("\"abc\""));
+    }
+
+    @Test
+    void givenATagList_whenCallIsMadeToMatches_thenMatchesAnyListedVersion() {
+        assertThat(ETags.matches("\"2\", W/\"3\"", 3L)).isTrue();
+        assertThat(ETags.matches("\"2\"", 3L)).isFalse();
+        assertThat(ETags.matches("*", 3L)).isTrue();
+        assertThat(ETags.matches("\"3\"", null)).isFalse();
+    }
+}
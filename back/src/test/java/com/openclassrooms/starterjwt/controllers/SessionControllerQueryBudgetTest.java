@@ -0,0 +1,112 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.querycount.QueryBudget;
+import com.openclassrooms.starterjwt.querycount.StatementCountingDataSourceConfig;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static com.openclassrooms.starterjwt.fixtures.SessionFixtures.*;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Statements run by the session reads on a real database, with a cold second-level cache: the budgets do not
+ * depend on the number of sessions, so an N+1 in the service, the mapper or the Session mappings fails here.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+@Import(StatementCountingDataSourceConfig.class)
+@WithMockUser(username = "test@test.com")
+class SessionControllerQueryBudgetTest {
+    private static final int SESSIONS = 200;
+    private static final int PARTICIPANTS = 5;
+    // oc.app.sessionPageMaxSize: the list returns no more sessions than a page
+    private static final int PAGE_MAX_SIZE = 100;
+
+    private Session session;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private SessionRepository sessionRepository;
+    @Autowired
+    private TeacherRepository teacherRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void init() {
+        Teacher teacher = teacherRepository.save(teacher());
+        List<User> participants = userRepository.saveAll(users("budget", PARTICIPANTS));
+        session = sessionRepository.saveAll(sessions(SESSIONS, teacher, participants)).get(0);
+
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+        teacherRepository.deleteAll();
+    }
+
+    @Test
+    @QueryBudget(1)
+    void givenManySessions_whenCallIsMadeToFindAll_thenTheSessionsAndTheirParticipantCountsAreReadInOneStatement() throws Exception {
+        mockMvc.perform(get("/api/session"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(PAGE_MAX_SIZE)))
+                .andExpect(jsonPath("$[0].participantCount").value(PARTICIPANTS));
+    }
+
+    @Test
+    @QueryBudget(1)
+    void givenManySessions_whenCallIsMadeToFindPage_thenThePageAndItsParticipantCountsAreReadInOneStatement() throws Exception {
+        mockMvc.perform(get("/api/session/page").param("size", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(100)));
+    }
+
+    /**
+     * The participants are loaded by batches of 100 sessions: one statement for the list, one for the participants.
+     */
+    @Test
+    @QueryBudget(1 + PAGE_MAX_SIZE / 100)
+    void givenManySessions_whenCallIsMadeToFindAllWithTheParticipants_thenTheParticipantsAreLoadedByBatches() throws Exception {
+        mockMvc.perform(get("/api/session").param("includeUsers", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(PAGE_MAX_SIZE)))
+                .andExpect(jsonPath("$[0].users", hasSize(PARTICIPANTS)));
+    }
+
+    @Test
+    @QueryBudget(1)
+    void givenASession_whenCallIsMadeToFindById_thenTheSessionItsTeacherAndItsParticipantsAreReadInOneStatement() throws Exception {
+        mockMvc.perform(get("/api/session/" + session.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users", hasSize(PARTICIPANTS)));
+    }
+}
@@ -3,10 +3,16 @@ package com.openclassrooms.starterjwt.controllers;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
+import com.openclassrooms.starterjwt.exception.PreconditionFailedException;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.services.ParticipationStatus;
+import com.openclassrooms.starterjwt.services.SessionPage;
 import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.services.TeacherService;
+import com.openclassrooms.starterjwt.services.UserService;
+import org.mockito.ArgumentCaptor;
 import org.assertj.core.util.DateUtil;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,18 +21,28 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -47,6 +63,12 @@ class SessionControllerTest {
     @MockBean
     private SessionService sessionService;
 
+    @MockBean
+    private TeacherService teacherService;
+
+    @MockBean
+    private UserService userService;
+
     @BeforeAll
     static void initData() {
         objectMapper = new ObjectMapper()
@@ -95,6 +117,8 @@ class SessionControllerTest {
                         .description("Une première session")
                         .teacher(teacher)
                         .users(users)
+                        .seatsTaken(2)
+                        .version(3L)
                         .createdAt(nowLocalDateTime)
                         .updatedAt(nowLocalDateTime)
                         .build(),
@@ -105,6 +129,8 @@ class SessionControllerTest {
                         .description("Une seconde session")
                         .teacher(teacher)
                         .users(users)
+                        .seatsTaken(2)
+                        .version(3L)
                         .createdAt(nowLocalDateTime)
                         .updatedAt(nowLocalDateTime)
                         .build()
@@ -112,12 +138,34 @@ class SessionControllerTest {
         session = sessions.get(0);
     }
 
+    @Test
+    void givenTheCurrentETag_whenRequestIsMadeToFindById_thenReturnsResponseWithNotModifiedStatusWithoutLoadingTheSession() throws Exception {
+        when(sessionService.getVersion(session.getId())).thenReturn(3L);
+
+        mockMvc.perform(get("/api/session/" + session.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+
+        verify(sessionService, never()).getById(any());
+    }
+
+    @Test
+    void givenAStaleETag_whenRequestIsMadeToFindById_thenReturnsResponseWithOKStatusAndTheCurrentETag() throws Exception {
+        when(sessionService.getVersion(session.getId())).thenReturn(3L);
+        when(sessionService.getById(session.getId())).thenReturn(session);
+
+        mockMvc.perform(get("/api/session/" + session.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+    }
+
     @Test
     void givenAnExistingSessionId_whenRequestIsMadeToFindById_thenReturnsResponseWithOKStatusAndSessionJson() throws Exception {
         when(sessionService.getById(session.getId())).thenReturn(session);
 
         mockMvc.perform(get("/api/session/" + session.getId()))
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
                 .andExpect(jsonPath("$.id").value(session.getId()))
                 .andExpect(jsonPath("$.name").value(session.getName()))
                 // La comparaison devrait être OK, mais non ("" en trop)
@@ -155,7 +203,7 @@ class SessionControllerTest {
     }
 
     @Test
-    void whenRequestIsMadeToFindAll_thenReturnsResponseWithOKStatusAndSessionsJson() throws Exception {
+    void whenRequestIsMadeToFindAll_thenReturnsResponseWithOKStatusAndSessionsJsonWithParticipantCounts() throws Exception {
         when(sessionService.findAll()).thenReturn(sessions);
 
         mockMvc.perform(get("/api/session"))
@@ -169,10 +217,8 @@ class SessionControllerTest {
                 .andExpect(jsonPath("$[0].date").exists())
                 .andExpect(jsonPath("$[0].description").value(sessions.get(0).getDescription()))
                 .andExpect(jsonPath("$[0].teacher_id").value(teacher.getId()))
-                .andExpect(jsonPath("$[0].users").exists())
-                .andExpect(jsonPath("$[0].users").isArray())
-                .andExpect(jsonPath("$[0].users", hasSize(2)))
-                .andExpect(jsonPath("$[0].users", containsInAnyOrder(1, 2)))
+                .andExpect(jsonPath("$[0].users").doesNotExist())
+                .andExpect(jsonPath("$[0].participantCount").value(2))
                 .andExpect(jsonPath("$[0].createdAt").exists()) // Juste exists() car 2 derniers chiffres tronqués lors du mapping (??)
                 .andExpect(jsonPath("$[0].updatedAt").exists())
                 .andExpect(jsonPath("$[1].id").value(sessions.get(1).getId()))
@@ -182,10 +228,8 @@ class SessionControllerTest {
                 .andExpect(jsonPath("$[1].date").exists())
                 .andExpect(jsonPath("$[1].description").value(sessions.get(1).getDescription()))
                 .andExpect(jsonPath("$[1].teacher_id").value(teacher.getId()))
-                .andExpect(jsonPath("$[1].users").exists())
-                .andExpect(jsonPath("$[1].users").isArray())
-                .andExpect(jsonPath("$[1].users", hasSize(2)))
-                .andExpect(jsonPath("$[1].users", containsInAnyOrder(1, 2)))
+                .andExpect(jsonPath("$[1].users").doesNotExist())
+                .andExpect(jsonPath("$[1].participantCount").value(2))
                 .andExpect(jsonPath("$[1].createdAt").exists()) // Juste exists() car 2 derniers chiffres tronqués lors du mapping (??)
                 .andExpect(jsonPath("$[1].updatedAt").exists()) // Idem
         ;
@@ -193,6 +237,46 @@ class SessionControllerTest {
         verify(sessionService, times(1)).findAll();
     }
 
+    @Test
+    void givenIncludeUsers_whenRequestIsMadeToFindAll_thenReturnsResponseWithOKStatusAndSessionsJsonWithParticipantIds() throws Exception {
+        when(sessionService.findAll()).thenReturn(sessions);
+
+        mockMvc.perform(get("/api/session").param("includeUsers", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].users", containsInAnyOrder(1, 2)))
+                .andExpect(jsonPath("$[0].participantCount").value(2))
+                .andExpect(jsonPath("$[1].users", containsInAnyOrder(1, 2)));
+    }
+
+    @Test
+    void givenPaginationParameters_whenRequestIsMadeToFindPage_thenReturnsResponseWithOKStatusAndSessionPageJson() throws Exception {
+        when(sessionService.findPage("cursor", 2, null, null, teacher.getId())).thenReturn(new SessionPage(sessions, "next"));
+
+        mockMvc.perform(get("/api/session/page").param("cursor", "cursor").param("size", "2").param("teacherId", String.valueOf(teacher.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].id").value(sessions.get(0).getId()))
+                .andExpect(jsonPath("$.items[1].id").value(sessions.get(1).getId()))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+
+        verify(sessionService, times(1)).findPage("cursor", 2, null, null, teacher.getId());
+    }
+
+    @Test
+    void givenADateRange_whenRequestIsMadeToFindPage_thenPassesItToTheService() throws Exception {
+        var from = Date.from(Instant.parse("2025-01-01T00:00:00Z"));
+        var to = Date.from(Instant.parse("2025-02-01T00:00:00Z"));
+        when(sessionService.findPage(null, 20, from, to, null)).thenReturn(new SessionPage(List.of(), null));
+
+        mockMvc.perform(get("/api/session/page").param("from", "2025-01-01T00:00:00.000Z").param("to", "2025-02-01T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(0)))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        verify(sessionService, times(1)).findPage(null, 20, from, to, null);
+    }
+
     @Test
     void givenASessionToCreateJson_whenRequestIsMadeToCreate_thenReturnsResponseWithOKStatusAndCreatedSessionJson() throws Exception {
         var sessionToCreateJson = "{ \"teacher_id\": 2, \"date\": \"2025-11-28\", \"name\": \"Session 3\", \"description\": \"Une nouvelle session\" }";
@@ -206,6 +290,7 @@ class SessionControllerTest {
                 .users(List.of())
                 .createdAt(now)
                 .updatedAt(now)
+                .version(0L)
                 .build();
         when(sessionService.create(any(Session.class))).thenReturn(createdSession);
 
@@ -255,6 +340,25 @@ class SessionControllerTest {
         verify(sessionService, times(1)).update(eq(1L), any(Session.class));
     }
 
+    @Test
+    void givenAnIfMatchHeader_whenRequestIsMadeToUpdate_thenPassesTheExpectedVersionToTheService() throws Exception {
+        var sessionToUpdateJson = "{ \"id\": 1, \"teacher_id\": 2, \"date\": \"2025-11-28\", \"name\": \"Session 1\", \"description\": \"Une session mise à jour\" }";
+        when(sessionService.update(eq(1L), argThat(sessionToUpdate -> Long.valueOf(3L).equals(sessionToUpdate.getVersion())))).thenReturn(session.setVersion(4L));
+
+        mockMvc.perform(put("/api/session/1").header(HttpHeaders.IF_MATCH, "\"3\"").contentType(MediaType.APPLICATION_JSON_VALUE).content(sessionToUpdateJson))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @Test
+    void givenAStaleIfMatchHeader_whenRequestIsMadeToUpdate_thenReturnsResponseWithPreconditionFailedStatus() throws Exception {
+        var sessionToUpdateJson = "{ \"id\": 1, \"teacher_id\": 2, \"date\": \"2025-11-28\", \"name\": \"Session 1\", \"description\": \"Une session mise à jour\" }";
+        when(sessionService.update(eq(1L), any(Session.class))).thenThrow(new PreconditionFailedException());
+
+        mockMvc.perform(put("/api/session/1").header(HttpHeaders.IF_MATCH, "\"2\"").contentType(MediaType.APPLICATION_JSON_VALUE).content(sessionToUpdateJson))
+                .andExpect(status().isPreconditionFailed());
+    }
+
     @Test
     void givenASessionToUpdateAlphanumericIdAndJson_whenRequestIsMadeToUpdate_thenReturnsResponseWithBadRequestStatus() throws Exception {
         var sessionToUpdateJson = "{ \"id\": 1, \"teacher_id\": 2, \"date\": \"2025-11-28\", \"name\": \"Session 1\", \"description\": \"Une session mise à jour\" }";
@@ -264,27 +368,68 @@ class SessionControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void givenASessionIdAndAPartialJson_whenRequestIsMadeToPatch_thenReturnsResponseWithOKStatusAndPatchedSessionJson() throws Exception {
+        var patchJson = "{ \"name\": \"Session renommée\" }";
+        var patchedSession = session.setName("Session renommée");
+        when(sessionService.patch(eq(1L), isNull(), any())).thenReturn(patchedSession);
+
+        mockMvc.perform(patch("/api/session/1").contentType(MediaType.APPLICATION_JSON_VALUE).content(patchJson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(patchedSession.getId()))
+                .andExpect(jsonPath("$.name").value("Session renommée"))
+                .andExpect(jsonPath("$.description").value(patchedSession.getDescription()));
+
+        verify(sessionService, times(1)).patch(eq(1L), isNull(), any());
+        verify(sessionService, never()).update(any(), any());
+    }
+
+    @Test
+    void givenAnUnexistingSessionId_whenRequestIsMadeToPatch_thenReturnsResponseWithNotFoundStatus() throws Exception {
+        when(sessionService.patch(eq(99999L), any(), any())).thenReturn(null);
+
+        mockMvc.perform(patch("/api/session/99999").contentType(MediaType.APPLICATION_JSON_VALUE).content("{ \"capacity\": 12 }"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void givenABlankName_whenRequestIsMadeToPatch_thenReturnsResponseWithBadRequestStatus() throws Exception {
+        mockMvc.perform(patch("/api/session/1").contentType(MediaType.APPLICATION_JSON_VALUE).content("{ \"name\": \"\" }"))
+                .andExpect(status().isBadRequest());
+
+        verify(sessionService, never()).patch(any(), any(), any());
+    }
+
     @Test
     void givenAnUnexistingSessionId_whenRequestIsMadeToDelete_thenReturnsResponseWithNotFoundStatus() throws Exception {
         session.setId(99999L);
-        when(sessionService.getById(session.getId())).thenReturn(null);
+        when(sessionService.delete(session.getId(), null)).thenReturn(false);
 
         mockMvc.perform(delete("/api/session/" + session.getId()))
                 .andExpect(status().isNotFound());
 
-        verify(sessionService, times(1)).getById(session.getId());
+        verify(sessionService, never()).getById(any());
     }
 
     @Test
     void givenAnExistingSessionId_whenRequestIsMadeToDelete_thenReturnsResponseWithOKStatus() throws Exception {
-        when(sessionService.getById(session.getId())).thenReturn(session);
-        doNothing().when(sessionService).delete(session.getId());
+        when(sessionService.delete(session.getId(), null)).thenReturn(true);
 
         mockMvc.perform(delete("/api/session/" + session.getId()))
                 .andExpect(status().isOk());
 
-        verify(sessionService, times(1)).getById(session.getId());
-        verify(sessionService, times(1)).delete(session.getId());
+        verify(sessionService, never()).getById(any());
+        verify(sessionService, times(1)).delete(session.getId(), null);
+    }
+
+    @Test
+    void givenAnIfMatchHeader_whenRequestIsMadeToDelete_thenDeletesOnlyAtTheExpectedVersion() throws Exception {
+        when(sessionService.delete(session.getId(), 3L)).thenReturn(true);
+
+        mockMvc.perform(delete("/api/session/" + session.getId()).header(HttpHeaders.IF_MATCH, "W/\"3\""))
+                .andExpect(status().isOk());
+
+        verify(sessionService, times(1)).delete(session.getId(), 3L);
     }
 
     @Test
@@ -303,9 +448,174 @@ class SessionControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenSessions_whenRequestIsMadeToExportAsNdjson_thenStreamsOneJsonObjectPerLine() throws Exception {
+        session.setSeatsTaken(2);
+        doAnswer(invocation -> {
+            sessions.forEach(invocation.getArgument(0, Consumer.class));
+            return null;
+        }).when(sessionService).export(any());
+
+        var content = mockMvc.perform(get("/api/session/export"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_NDJSON_VALUE))
+                .andReturn().getResponse().getContentAsString();
+
+        var lines = content.split("\n");
+        assertThat(lines).hasSize(2);
+        var first = objectMapper.readTree(lines[0]);
+        assertThat(first.get("id").asLong()).isEqualTo(1L);
+        assertThat(first.get("participantCount").asInt()).isEqualTo(2);
+        assertThat(first.get("users").isNull()).isTrue();
+        assertThat(objectMapper.readTree(lines[1]).get("name").asText()).isEqualTo("Session 2");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenSessions_whenRequestIsMadeToExportAsCsv_thenStreamsAHeaderAndOneEscapedRowPerSession() throws Exception {
+        session.setDescription("Calme, \"doux\"");
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Consumer.class).accept(session);
+            return null;
+        }).when(sessionService).export(any());
+
+        var content = mockMvc.perform(get("/api/session/export").param("format", "csv"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"sessions.csv\""))
+                .andReturn().getResponse().getContentAsString();
+
+        var lines = content.split("\r\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).isEqualTo("id,name,date,teacher_id,description,capacity,participantCount,createdAt,updatedAt");
+        assertThat(lines[1]).startsWith("1,Session 1," + session.getDate().toInstant() + ",2,\"Calme, \"\"doux\"\"\",,0,");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenAGzipAcceptEncoding_whenRequestIsMadeToExport_thenCompressesTheStream() throws Exception {
+        doAnswer(invocation -> {
+            sessions.forEach(invocation.getArgument(0, Consumer.class));
+            return null;
+        }).when(sessionService).export(any());
+
+        var response = mockMvc.perform(get("/api/session/export").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse();
+
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")).hasSize(2);
+        }
+    }
+
+    @Test
+    void givenAnUnknownFormat_whenRequestIsMadeToExport_thenReturnsResponseWithBadRequestStatus() throws Exception {
+        mockMvc.perform(get("/api/session/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+
+        verify(sessionService, never()).export(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenNdjsonRows_whenRequestIsMadeToImport_thenImportsTheValidRowsInOneBatchAndReportsTheOthers() throws Exception {
+        var body = "{\"name\": \"Session A\", \"date\": \"2025-11-28T10:00:00Z\", \"teacher_id\": 2, \"description\": \"A\", \"users\": [1]}\n"
+                + "{\"name\": \"\", \"date\": \"2025-11-28T10:00:00Z\", \"teacher_id\": 2, \"description\": \"B\"}\n"
+                + "not json\n"
+                + "\n"
+                + "{\"name\": \"Session D\", \"date\": \"2025-11-29T10:00:00Z\", \"teacher_id\": 9, \"description\": \"D\"}\n"
+                + "{\"name\": \"Session E\", \"date\": \"2025-11-30T10:00:00Z\", \"teacher_id\": 2, \"description\": \"E\", \"users\": [1, 7]}\n"
+                + "{\"name\": \"Session F\", \"date\": \"2025-12-01T10:00:00Z\", \"teacher_id\": 2, \"description\": \"F\"}\n";
+        when(teacherService.findExistingIds(Set.of(2L, 9L))).thenReturn(Set.of(2L));
+        when(userService.findExistingIds(Set.of(1L, 7L))).thenReturn(Set.of(1L));
+
+        mockMvc.perform(post("/api/session/import").contentType("application/x-ndjson").content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.errors", hasSize(4)))
+                .andExpect(jsonPath("$.errors[0].row").value(2))
+                .andExpect(jsonPath("$.errors[0].messages[0]").value(startsWith("name: ")))
+                .andExpect(jsonPath("$.errors[1].row").value(3))
+                .andExpect(jsonPath("$.errors[2].row").value(4))
+                .andExpect(jsonPath("$.errors[2].messages[0]").value("teacher_id: unknown teacher 9"))
+                .andExpect(jsonPath("$.errors[3].row").value(5))
+                .andExpect(jsonPath("$.errors[3].messages[0]").value("users: unknown user ids [7]"));
+
+        var captor = ArgumentCaptor.forClass(List.class);
+        verify(sessionService, times(1)).importAll(captor.capture());
+        List<Session> imported = captor.getValue();
+        assertThat(imported).extracting(Session::getName).containsExactly("Session A", "Session F");
+        verify(userService, times(1)).getReference(1L);
+        verify(userService, never()).findAllById(any());
+        verify(sessionService, never()).create(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenANullNdjsonRow_whenRequestIsMadeToImport_thenReportsItAndImportsTheFollowingRows() throws Exception {
+        var body = "{\"name\": \"Session A\", \"date\": \"2025-11-28T10:00:00Z\", \"teacher_id\": 2, \"description\": \"A\"}\n"
+                + "null\n"
+                + "{\"name\": \"Session C\", \"date\": \"2025-11-29T10:00:00Z\", \"teacher_id\": 2, \"description\": \"C\"}\n";
+        when(teacherService.findExistingIds(Set.of(2L))).thenReturn(Set.of(2L));
+
+        mockMvc.perform(post("/api/session/import").contentType("application/x-ndjson").content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.errors", hasSize(1)))
+                .andExpect(jsonPath("$.errors[0].row").value(2))
+                .andExpect(jsonPath("$.errors[0].messages[0]").value("Expected a JSON object, got null"));
+
+        var captor = ArgumentCaptor.forClass(List.class);
+        verify(sessionService, times(1)).importAll(captor.capture());
+        List<Session> imported = captor.getValue();
+        assertThat(imported).extracting(Session::getName).containsExactly("Session A", "Session C");
+    }
+
+    @Test
+    void givenARowWithMoreParticipantsThanSeats_whenRequestIsMadeToImport_thenReportsItWithoutImportingIt() throws Exception {
+        var body = "{\"name\": \"Session A\", \"date\": \"2025-11-28T10:00:00Z\", \"teacher_id\": 2, \"description\": \"A\", \"users\": [1, 3], \"capacity\": 1}\n";
+        when(teacherService.findExistingIds(Set.of(2L))).thenReturn(Set.of(2L));
+        when(userService.findExistingIds(Set.of(1L, 3L))).thenReturn(Set.of(1L, 3L));
+
+        mockMvc.perform(post("/api/session/import").contentType("application/x-ndjson").content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(0))
+                .andExpect(jsonPath("$.errors[0].row").value(1))
+                .andExpect(jsonPath("$.errors[0].messages[0]").value("users: 2 participants for a capacity of 1"));
+
+        verify(sessionService, never()).importAll(any());
+    }
+
+    @Test
+    void givenACsvExport_whenRequestIsMadeToImport_thenImportsItsRows() throws Exception {
+        var body = "id,name,date,teacher_id,description,capacity,participantCount,createdAt,updatedAt\r\n"
+                + "1,Session 1,2025-11-28T10:00:00Z,2,\"Calme, \"\"doux\"\"\",12,0,,\r\n"
+                + "2,Session 2,le 29 novembre,2,Une autre,,0,,\r\n";
+        when(teacherService.findExistingIds(Set.of(2L))).thenReturn(Set.of(2L));
+
+        mockMvc.perform(post("/api/session/import").param("format", "csv").contentType("text/csv").content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.errors", hasSize(1)))
+                .andExpect(jsonPath("$.errors[0].row").value(2));
+
+        verify(sessionService, times(1)).importAll(argThat(sessions -> sessions.size() == 1
+                && "Calme, \"doux\"".equals(sessions.get(0).getDescription())
+                && Integer.valueOf(12).equals(sessions.get(0).getCapacity())));
+    }
+
+    @Test
+    void givenACsvWithoutTheRequiredColumns_whenRequestIsMadeToImport_thenReturnsResponseWithBadRequestStatus() throws Exception {
+        mockMvc.perform(post("/api/session/import").param("format", "csv").contentType("text/csv").content("name,date\r\n"))
+                .andExpect(status().isBadRequest());
+
+        verify(sessionService, never()).importAll(any());
+    }
+
     @Test
     void givenExistingSessionAndUserIds_whenRequestIsMadeToParticipate_thenReturnsResponseWithOKStatus() throws Exception {
-        doNothing().when(sessionService).participate(session.getId(), 1L);
+        when(sessionService.participate(session.getId(), 1L)).thenReturn(ParticipationStatus.PARTICIPATING);
 
         mockMvc.perform(post("/api/session/" + session.getId() + "/participate/1"))
                 .andExpect(status().isOk());
@@ -313,6 +623,14 @@ class SessionControllerTest {
         verify(sessionService, times(1)).participate(session.getId(), 1L);
     }
 
+    @Test
+    void givenAFullSessionAndAUserId_whenRequestIsMadeToParticipate_thenReturnsResponseWithAcceptedStatus() throws Exception {
+        when(sessionService.participate(session.getId(), 1L)).thenReturn(ParticipationStatus.WAITLISTED);
+
+        mockMvc.perform(post("/api/session/" + session.getId() + "/participate/1"))
+                .andExpect(status().isAccepted());
+    }
+
     @Test
     void givenAnAlphanumericSessionIdAndAnExistingUserId_whenRequestIsMadeToNoLongerParticipate_thenReturnsResponseWithBadRequestStatus() throws Exception {
         doThrow(NumberFormatException.class).when(sessionService).noLongerParticipate(any(), eq(1L));
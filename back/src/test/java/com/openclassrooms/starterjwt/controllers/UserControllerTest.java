@@ -1,6 +1,9 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.openclassrooms.starterjwt.exception.NotFoundException;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.security.services.RefreshTokenService;
+import com.openclassrooms.starterjwt.security.services.TokenRevocationService;
 import com.openclassrooms.starterjwt.services.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -31,6 +34,12 @@ class UserControllerTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private TokenRevocationService tokenRevocationService;
+
+    @MockBean
+    private RefreshTokenService refreshTokenService;
+
     @BeforeEach
     void init() {
         var now = LocalDateTime.now();
@@ -86,35 +95,40 @@ class UserControllerTest {
     @Test
     void givenAnUnexistingUserId_whenRequestIsMadeToDelete_thenReturnsResponseWithNotFoundStatus() throws Exception {
         user.setId(99999L);
-        when(userService.findById(user.getId())).thenReturn(null);
+        doThrow(NotFoundException.class).when(userService).delete(user.getId(), "test@test.com");
+        when(userService.existsById(user.getId())).thenReturn(false);
 
         mockMvc.perform(delete("/api/user/" + user.getId()))
                 .andExpect(status().isNotFound());
 
-        verify(userService, times(1)).findById(user.getId());
+        verify(tokenRevocationService, never()).revokeUser(any());
+        verify(userService, never()).evictFromCache(any());
     }
 
     @Test
     void givenAnExistingUserId_whenRequestIsMadeToDeleteByAnotherUser_thenReturnsResponseWithUnauthorizedStatus() throws Exception {
-        user.setEmail("unauthorized@test.com");
-        when(userService.findById(user.getId())).thenReturn(user);
+        doThrow(NotFoundException.class).when(userService).delete(user.getId(), "test@test.com");
+        when(userService.existsById(user.getId())).thenReturn(true);
 
         mockMvc.perform(delete("/api/user/" + user.getId()))
                 .andExpect(status().isUnauthorized());
 
-        verify(userService, times(1)).findById(user.getId());
+        verify(tokenRevocationService, never()).revokeUser(any());
     }
 
     @Test
     void givenAnExistingUserId_whenRequestIsMadeToDelete_thenReturnsResponseWithOKStatus() throws Exception {
-        when(userService.findById(user.getId())).thenReturn(user);
-        doNothing().when(userService).delete(user.getId());
+        doNothing().when(userService).delete(user.getId(), user.getEmail());
 
         mockMvc.perform(delete("/api/user/" + user.getId()))
                 .andExpect(status().isOk());
 
-        verify(userService, times(1)).findById(user.getId());
-        verify(userService, times(1)).delete(user.getId());
+        verify(userService, never()).findById(any());
+        verify(userService, never()).existsById(any());
+        verify(userService, times(1)).delete(user.getId(), user.getEmail());
+        verify(userService, times(1)).evictFromCache(user.getId());
+        verify(refreshTokenService, times(1)).deleteByUserId(user.getId());
+        verify(tokenRevocationService, times(1)).revokeUser(user.getId());
     }
 
     @Test
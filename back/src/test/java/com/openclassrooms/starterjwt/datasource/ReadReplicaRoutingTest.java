@@ -0,0 +1,187 @@
+package com.openclassrooms.starterjwt.datasource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Date;
+import java.util.List;
+
+import static com.openclassrooms.starterjwt.fixtures.SessionFixtures.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Two embedded databases stand for the primary and the replica; replication is simulated by writing the
+ * heartbeat to the replica by hand, or by copying the whole primary into it.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:yoga_primary;MODE=MySQL;DATABASE_TO_LOWER=FALSE;DB_CLOSE_DELAY=-1",
+        "oc.app.read-replica.url=jdbc:h2:mem:yoga_replica;MODE=MySQL;DATABASE_TO_LOWER=FALSE;DB_CLOSE_DELAY=-1",
+        "oc.app.read-replica.username=sa",
+        "oc.app.read-replica.password=",
+        "oc.app.read-replica.max-lag-ms=5000",
+        "oc.app.read-replica.heartbeat-ms=3600000"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class ReadReplicaRoutingTest {
+    private static final String CREATE_HEARTBEAT = "CREATE TABLE IF NOT EXISTS REPLICA_HEARTBEAT (id INT PRIMARY KEY, beat_ms BIGINT NOT NULL)";
+
+    @Autowired
+    private HikariDataSource primaryDataSource;
+    @Autowired
+    private HikariDataSource replicaDataSource;
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+    @Autowired
+    private ReadWriteRoutingDataSource routingDataSource;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private SessionRepository sessionRepository;
+    @Autowired
+    private TeacherRepository teacherRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void init() {
+        new JdbcTemplate(primaryDataSource).execute(CREATE_HEARTBEAT);
+        replica = new JdbcTemplate(replicaDataSource);
+        replica.execute(CREATE_HEARTBEAT);
+        replica.update("DELETE FROM REPLICA_HEARTBEAT");
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+        teacherRepository.deleteAll();
+    }
+
+    @Test
+    void givenAnUpToDateReplica_whenAReadOnlyTransactionRuns_thenItReadsFromTheReplica() {
+        replicate(System.currentTimeMillis());
+
+        assertThat(databaseOf(true)).isEqualToIgnoringCase("yoga_replica");
+        assertThat(routingDataSource.getReplicaReadCount()).isPositive();
+    }
+
+    @Test
+    void givenAnUpToDateReplica_whenAReadWriteTransactionRuns_thenItUsesThePrimary() {
+        replicate(System.currentTimeMillis());
+
+        assertThat(databaseOf(false)).isEqualToIgnoringCase("yoga_primary");
+    }
+
+    @Test
+    void givenALaggingReplica_whenAReadOnlyTransactionRuns_thenItFallsBackToThePrimary() {
+        replicate(System.currentTimeMillis() - 60_000);
+        long fallbacks = routingDataSource.getPrimaryFallbackCount();
+
+        assertThat(databaseOf(true)).isEqualToIgnoringCase("yoga_primary");
+        assertThat(replicaLagMonitor.getLagMs()).isGreaterThan(5000);
+        assertThat(routingDataSource.getPrimaryFallbackCount()).isEqualTo(fallbacks + 1);
+    }
+
+    @Test
+    void givenNoReplicatedHeartbeat_whenAReadOnlyTransactionRuns_thenItFallsBackToThePrimary() {
+        replicaLagMonitor.checkLag();
+
+        assertThat(replicaLagMonitor.isReplicaUsable()).isFalse();
+        assertThat(databaseOf(true)).isEqualToIgnoringCase("yoga_primary");
+    }
+
+    @Test
+    void givenAHeartbeat_whenCallIsMadeToBeat_thenItIsWrittenToThePrimaryOnly() {
+        replicaLagMonitor.beat();
+
+        assertThat(new JdbcTemplate(primaryDataSource).queryForObject("SELECT COUNT(*) FROM REPLICA_HEARTBEAT", Integer.class)).isEqualTo(1);
+        assertThat(replica.queryForObject("SELECT COUNT(*) FROM REPLICA_HEARTBEAT", Integer.class)).isZero();
+    }
+
+    /**
+     * With open-session-in-view the request keeps one persistence context: the connection taken by the read-only
+     * lookup of the participants must not be reused by the update that follows.
+     */
+    @Test
+    @WithMockUser(username = "test@test.com")
+    void givenAnUpToDateReplica_whenASessionIsUpdatedWithItsParticipants_thenTheWriteLandsOnThePrimary() throws Exception {
+        Teacher teacher = teacherRepository.save(teacher());
+        User user = userRepository.save(user("replica@test.com"));
+        Session session = sessionRepository.save(session("Session", teacher, null));
+        copyPrimaryToReplica();
+        long replicaReads = routingDataSource.getReplicaReadCount();
+        var sessionDto = new SessionDto(null, "Session renommée", new Date(), teacher.getId(), "Une session",
+                List.of(user.getId()), null, null, null, null);
+
+        mockMvc.perform(put("/api/session/" + session.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sessionDto)))
+                .andExpect(status().isOk());
+
+        assertThat(routingDataSource.getReplicaReadCount()).isGreaterThan(replicaReads);
+        var primary = new JdbcTemplate(primaryDataSource);
+        assertThat(primary.queryForObject("SELECT name FROM SESSIONS WHERE id = ?", String.class, session.getId()))
+                .isEqualTo("Session renommée");
+        assertThat(primary.queryForObject("SELECT COUNT(*) FROM PARTICIPATE WHERE session_id = ?", Integer.class, session.getId()))
+                .isEqualTo(1);
+        assertThat(replica.queryForObject("SELECT name FROM SESSIONS WHERE id = ?", String.class, session.getId()))
+                .isEqualTo("Session");
+        assertThat(replica.queryForObject("SELECT COUNT(*) FROM PARTICIPATE WHERE session_id = ?", Integer.class, session.getId()))
+                .isZero();
+    }
+
+    /**
+     * Replaces the replica by a copy of the primary, then marks it up to date.
+     */
+    private void copyPrimaryToReplica() {
+        List<String> script = new JdbcTemplate(primaryDataSource).queryForList("SCRIPT", String.class);
+        replica.execute("DROP ALL OBJECTS");
+        script.forEach(replica::execute);
+        replica.update("DELETE FROM REPLICA_HEARTBEAT");
+        replicate(System.currentTimeMillis());
+    }
+
+    private void replicate(long beatMs) {
+        replica.update("INSERT INTO REPLICA_HEARTBEAT (id, beat_ms) VALUES (1, ?)", beatMs);
+        replicaLagMonitor.checkLag();
+    }
+
+    private String databaseOf(boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status -> (String) entityManager.createNativeQuery("SELECT DATABASE()").getSingleResult());
+    }
+}
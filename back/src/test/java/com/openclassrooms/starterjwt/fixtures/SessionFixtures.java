@@ -0,0 +1,70 @@
+package com.openclassrooms.starterjwt.fixtures;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * New, unsaved entities for the tests that seed a real database.
+ */
+public final class SessionFixtures {
+    private SessionFixtures() {
+    }
+
+    public static Teacher teacher() {
+        return Teacher.builder()
+                .lastName("Teacher")
+                .firstName("Margaret")
+                .build();
+    }
+
+    public static User user(String email) {
+        return User.builder()
+                .email(email)
+                .lastName("Test")
+                .firstName("Test")
+                .password("test!1234")
+                .admin(false)
+                .build();
+    }
+
+    /**
+     * Users emailed prefix0@test.com, prefix1@test.com...
+     */
+    public static List<User> users(String emailPrefix, int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(user(emailPrefix + i + "@test.com"));
+        }
+        return users;
+    }
+
+    /**
+     * A session dated now, its seat counter matching its participants (none when null).
+     */
+    public static Session session(String name, Teacher teacher, List<User> participants) {
+        return Session.builder()
+                .name(name)
+                .date(new Date())
+                .description("Une session")
+                .teacher(teacher)
+                .users(participants)
+                .seatsTaken(participants == null ? 0 : participants.size())
+                .build();
+    }
+
+    /**
+     * Sessions named "Session 0", "Session 1"..., all with the same teacher and participants.
+     */
+    public static List<Session> sessions(int count, Teacher teacher, List<User> participants) {
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            sessions.add(session("Session " + i, teacher, participants));
+        }
+        return sessions;
+    }
+}
@@ -1,6 +1,7 @@
 package com.openclassrooms.starterjwt.mapper;
 
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionPatchDto;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
@@ -13,11 +14,12 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 @SpringBootTest
 class SessionMapperTest {
@@ -55,18 +57,20 @@ class SessionMapperTest {
                 .name("Session")
                 .date(nowDate)
                 .description("Une session")
+                .capacity(10)
                 .teacher(teacher)
                 .users(List.of(user))
+                .seatsTaken(1)
                 .createdAt(nowLocalDateTime)
                 .updatedAt(nowLocalDateTime)
                 .build();
-        sessionDto = new SessionDto(1L, "Session", nowDate, 1L, "Une session", List.of(1L), nowLocalDateTime, nowLocalDateTime);
+        sessionDto = new SessionDto(1L, "Session", nowDate, 1L, "Une session", List.of(1L), nowLocalDateTime, nowLocalDateTime, 1, 10);
     }
 
     @Test
-    void givenASessionDto_whenCallIsMadeToToEntity_thenReturnsASession() {
-        when(teacherService.findById(sessionDto.getTeacher_id())).thenReturn(teacher);
-        when(userService.findById(1L)).thenReturn(user);
+    void givenASessionDto_whenCallIsMadeToToEntity_thenReturnsASessionWithoutLoadingTheTeacherNorEachUser() {
+        when(teacherService.getReference(sessionDto.getTeacher_id())).thenReturn(teacher);
+        when(userService.findAllById(sessionDto.getUsers())).thenReturn(List.of(user));
 
         var actualSession = sessionMapper.toEntity(sessionDto);
         var expectedSession = session;
@@ -80,7 +84,11 @@ class SessionMapperTest {
                 .hasFieldOrPropertyWithValue("users", expectedSession.getUsers())
                 .hasFieldOrPropertyWithValue("createdAt", expectedSession.getCreatedAt())
                 .hasFieldOrPropertyWithValue("updatedAt", expectedSession.getUpdatedAt())
+                .hasFieldOrPropertyWithValue("capacity", expectedSession.getCapacity())
         ;
+        verify(teacherService, never()).findById(any());
+        verify(userService, never()).findById(any());
+        verify(userService, times(1)).findAllById(sessionDto.getUsers());
     }
 
     @Test
@@ -97,6 +105,74 @@ class SessionMapperTest {
                 .hasFieldOrPropertyWithValue("users", expectedSessionDto.getUsers())
                 .hasFieldOrPropertyWithValue("createdAt", expectedSessionDto.getCreatedAt())
                 .hasFieldOrPropertyWithValue("updatedAt", expectedSessionDto.getUpdatedAt())
+                .hasFieldOrPropertyWithValue("participantCount", expectedSessionDto.getParticipantCount())
+                .hasFieldOrPropertyWithValue("capacity", expectedSessionDto.getCapacity())
         ;
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenASession_whenCallIsMadeToToSummaryDto_thenReturnsASessionDtoWithoutParticipantsCountingItsSeatsTaken() {
+        var actualSessionDto = sessionMapper.toSummaryDto(session);
+
+        assertThat(actualSessionDto)
+                .hasFieldOrPropertyWithValue("id", sessionDto.getId())
+                .hasFieldOrPropertyWithValue("name", sessionDto.getName())
+                .hasFieldOrPropertyWithValue("teacher_id", sessionDto.getTeacher_id())
+                .hasFieldOrPropertyWithValue("users", null)
+                .hasFieldOrPropertyWithValue("participantCount", 1)
+        ;
+    }
+
+    @Test
+    void givenAPartialPatch_whenCallIsMadeToApplyPatch_thenOnlyTheSuppliedFieldsChange() {
+        var sessionPatchDto = new SessionPatchDto();
+        sessionPatchDto.setName("Session renommée");
+        sessionPatchDto.setCapacity(12);
+
+        sessionMapper.applyPatch(sessionPatchDto, session);
+
+        assertThat(session)
+                .hasFieldOrPropertyWithValue("name", "Session renommée")
+                .hasFieldOrPropertyWithValue("capacity", 12)
+                .hasFieldOrPropertyWithValue("description", "Une session")
+                .hasFieldOrPropertyWithValue("teacher", teacher)
+                .hasFieldOrPropertyWithValue("users", List.of(user))
+        ;
+        verifyNoInteractions(teacherService, userService);
+    }
+
+    @Test
+    void givenAPatchWithParticipantsAndTeacher_whenCallIsMadeToApplyPatch_thenReplacesThemByReference() {
+        var otherTeacher = Teacher.builder().id(2L).build();
+        var sessionPatchDto = new SessionPatchDto();
+        sessionPatchDto.setTeacher_id(2L);
+        sessionPatchDto.setUsers(List.of());
+        when(teacherService.getReference(2L)).thenReturn(otherTeacher);
+        when(userService.findAllById(List.of())).thenReturn(List.of());
+        session.setUsers(new ArrayList<>(session.getUsers()));
+
+        sessionMapper.applyPatch(sessionPatchDto, session);
+
+        assertThat(session.getTeacher()).isEqualTo(otherTeacher);
+        assertThat(session.getUsers()).isEmpty();
+    }
+
+    @Test
+    void givenASessionDto_whenCallIsMadeToToImportedEntity_thenReturnsANewSessionWithReferencesOnly() {
+        when(teacherService.getReference(1L)).thenReturn(teacher);
+        when(userService.getReference(1L)).thenReturn(user);
+        sessionDto.setUsers(List.of(1L, 1L));
+
+        var actualSession = sessionMapper.toImportedEntity(sessionDto);
+
+        assertThat(actualSession)
+                .hasFieldOrPropertyWithValue("id", null)
+                .hasFieldOrPropertyWithValue("name", sessionDto.getName())
+                .hasFieldOrPropertyWithValue("teacher", teacher)
+                .hasFieldOrPropertyWithValue("users", List.of(user))
+                .hasFieldOrPropertyWithValue("capacity", sessionDto.getCapacity())
+                .hasFieldOrPropertyWithValue("createdAt", null)
+        ;
+        verify(userService, never()).findAllById(any());
+    }
+}
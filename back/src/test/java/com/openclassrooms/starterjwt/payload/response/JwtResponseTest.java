@@ -25,6 +25,16 @@ class JwtResponseTest {
         assertThat(jwtResponse.getAdmin()).isEqualTo(admin);
     }
 
+    @Test
+    void givenARefreshToken_whenCallIsMadeToConstructor_thenInstanceIsConstructedWithBothTokens() {
+        var jwtResponse = new JwtResponse("jwt", "refresh", 1L, "test@test.com", "Test", "Test", true);
+
+        assertThat(jwtResponse.getToken()).isEqualTo("jwt");
+        assertThat(jwtResponse.getRefreshToken()).isEqualTo("refresh");
+        assertThat(jwtResponse.getId()).isEqualTo(1L);
+        assertThat(jwtResponse.getAdmin()).isTrue();
+    }
+
     @Test
     void givenAllFieldsValues_whenCallsAreMadeToSetters_thenGettersReturnCorrectValues() {
         var token = "jwt";
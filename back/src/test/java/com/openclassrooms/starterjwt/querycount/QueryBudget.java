@@ -0,0 +1,20 @@
+package com.openclassrooms.starterjwt.querycount;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Most statements the test method may run on the thread of the test, @BeforeEach methods excluded.
+ * On a class, the budget of each of its methods that has none of its own.
+ * The Spring context of the test must import {@link StatementCountingDataSourceConfig}.
+ */
+@Target({ ElementType.TYPE, ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(QueryBudgetExtension.class)
+public @interface QueryBudget {
+    int value();
+}
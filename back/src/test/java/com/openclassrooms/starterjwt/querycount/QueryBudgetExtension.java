@@ -0,0 +1,48 @@
+package com.openclassrooms.starterjwt.querycount;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Records the statements run by each test method with a {@link QueryBudget}, and fails the test when they
+ * exceed it, listing them.
+ */
+public class QueryBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        if (budget(context).isPresent()) {
+            assertThat(StatementCounter.isInstalled())
+                    .as("@QueryBudget without a counting data source: import StatementCountingDataSourceConfig")
+                    .isTrue();
+            StatementCounter.start();
+        }
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        Optional<QueryBudget> budget = budget(context);
+        if (budget.isEmpty()) {
+            return;
+        }
+
+        List<String> statements = StatementCounter.stop();
+        // A failing test keeps its own failure
+        if (context.getExecutionException().isEmpty()) {
+            assertThat(statements)
+                    .as("Statements run by %s, over a budget of %d", context.getDisplayName(), budget.get().value())
+                    .hasSizeLessThanOrEqualTo(budget.get().value());
+        }
+    }
+
+    private static Optional<QueryBudget> budget(ExtensionContext context) {
+        return AnnotationSupport.findAnnotation(context.getRequiredTestMethod(), QueryBudget.class)
+                .or(() -> AnnotationSupport.findAnnotation(context.getRequiredTestClass(), QueryBudget.class));
+    }
+}
@@ -0,0 +1,103 @@
+package com.openclassrooms.starterjwt.querycount;
+
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Wraps a data source so that every statement executed through it is recorded, only on the threads that
+ * started a recording: scheduled tasks running meanwhile are not counted. A JDBC batch counts as one statement.
+ */
+public final class StatementCounter {
+    private static final ThreadLocal<List<String>> RECORDED = new ThreadLocal<>();
+
+    private static volatile boolean installed;
+
+    private StatementCounter() {
+    }
+
+    public static DataSource wrap(DataSource dataSource) {
+        installed = true;
+        // Keeps the public interfaces of the pool, such as Closeable for its shutdown
+        Class<?>[] interfaces = Arrays.stream(ClassUtils.getAllInterfacesForClass(dataSource.getClass()))
+                .filter(type -> Modifier.isPublic(type.getModifiers()))
+                .toArray(Class<?>[]::new);
+        return proxy(dataSource, interfaces, (proxy, method, args) -> {
+            Object result = invoke(dataSource, method, args);
+            return result instanceof Connection ? wrap((Connection) result) : result;
+        });
+    }
+
+    public static boolean isInstalled() {
+        return installed;
+    }
+
+    public static void start() {
+        RECORDED.set(new ArrayList<>());
+    }
+
+    /**
+     * The statements recorded since {@link #start()}, in execution order.
+     */
+    public static List<String> stop() {
+        List<String> statements = RECORDED.get();
+        RECORDED.remove();
+        return statements == null ? List.of() : statements;
+    }
+
+    private static Connection wrap(Connection connection) {
+        return proxy(connection, new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            if (result instanceof Statement) {
+                // The SQL of a prepared statement is only known here
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return wrap((Statement) result, sql);
+            }
+            return result;
+        });
+    }
+
+    private static Statement wrap(Statement statement, String preparedSql) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class
+                : Statement.class;
+        return proxy(statement, new Class<?>[] { type }, (proxy, method, args) -> {
+            if (method.getName().startsWith("execute")) {
+                record(args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql);
+            }
+            return invoke(statement, method, args);
+        });
+    }
+
+    private static void record(String sql) {
+        List<String> statements = RECORDED.get();
+        if (statements != null) {
+            statements.add(sql);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(T target, Class<?>[] interfaces, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(StatementCounter.class.getClassLoader(), interfaces, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
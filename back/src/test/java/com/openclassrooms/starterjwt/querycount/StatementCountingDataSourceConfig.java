@@ -0,0 +1,26 @@
+package com.openclassrooms.starterjwt.querycount;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+
+/**
+ * Counts the statements of the "dataSource" bean, the one JPA and JdbcTemplate use. With the read replica
+ * enabled it is the routing data source, so both pools are counted, once.
+ */
+@TestConfiguration
+public class StatementCountingDataSourceConfig {
+    @Bean
+    static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource && "dataSource".equals(beanName)
+                        ? StatementCounter.wrap((DataSource) bean)
+                        : bean;
+            }
+        };
+    }
+}
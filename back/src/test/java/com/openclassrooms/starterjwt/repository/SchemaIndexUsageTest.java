@@ -0,0 +1,194 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.querycount.StatementCounter;
+import com.openclassrooms.starterjwt.querycount.StatementCountingDataSourceConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs EXPLAIN on the MySQL schema built by the migrations, for the statements the repositories send
+ * on the hot paths, recorded as Hibernate generates them: none of them may scan a whole table.
+ */
+@SpringBootTest
+@Import(StatementCountingDataSourceConfig.class)
+class SchemaIndexUsageTest {
+    private static final String MARKER = "explain-index-usage";
+    private static final int SESSIONS = 500;
+    private static final int USERS = 200;
+    private static final int SESSIONS_PER_USER = 5;
+
+    private Long teacherId;
+    private Long sessionId;
+    private Long userId;
+    private Long otherUserId;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private SessionRepository sessionRepository;
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    @BeforeEach
+    void init() {
+        jdbcTemplate.update("INSERT INTO TEACHERS (first_name, last_name) VALUES ('Explain', ?)", MARKER);
+        teacherId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM TEACHERS WHERE last_name = ?", Long.class, MARKER);
+
+        var start = LocalDateTime.now();
+        List<Object[]> sessions = new ArrayList<>();
+        for (int i = 0; i < SESSIONS; i++) {
+            sessions.add(new Object[] { MARKER, Timestamp.valueOf(start.plusDays(i)), teacherId });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO SESSIONS (name, date, teacher_id, capacity) VALUES (?, ?, ?, 10)", sessions);
+
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(new Object[] { MARKER, MARKER + i + "@test.com" });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO USERS (first_name, last_name, email, password) VALUES ('Explain', ?, ?, 'test!1234')", users);
+
+        List<Long> sessionIds = jdbcTemplate.queryForList("SELECT id FROM SESSIONS WHERE name = ? ORDER BY id", Long.class, MARKER);
+        List<Long> userIds = jdbcTemplate.queryForList("SELECT id FROM USERS WHERE last_name = ? ORDER BY id", Long.class, MARKER);
+        List<Object[]> participations = new ArrayList<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            for (int j = 0; j < SESSIONS_PER_USER; j++) {
+                participations.add(new Object[] { sessionIds.get((i * SESSIONS_PER_USER + j) % sessionIds.size()), userIds.get(i) });
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO PARTICIPATE (session_id, user_id) VALUES (?, ?)", participations);
+        jdbcTemplate.batchUpdate("INSERT INTO WAITLIST (session_id, user_id) VALUES (?, ?)", participations);
+
+        jdbcTemplate.execute("ANALYZE TABLE SESSIONS, USERS, PARTICIPATE, WAITLIST");
+        sessionId = sessionIds.get(0);
+        userId = userIds.get(0);
+        // Neither a participant nor queued in the first session
+        otherUserId = userIds.get(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM WAITLIST WHERE user_id IN (SELECT id FROM USERS WHERE last_name = ?)", MARKER);
+        jdbcTemplate.update("DELETE FROM PARTICIPATE WHERE user_id IN (SELECT id FROM USERS WHERE last_name = ?)", MARKER);
+        jdbcTemplate.update("DELETE FROM USERS WHERE last_name = ?", MARKER);
+        jdbcTemplate.update("DELETE FROM SESSIONS WHERE name = ?", MARKER);
+        jdbcTemplate.update("DELETE FROM TEACHERS WHERE last_name = ?", MARKER);
+    }
+
+    @Test
+    void givenTheMigratedSchema_whenTheSessionsOfAUserAreLookedUp_thenTheUserIndexOfParticipateIsUsed() {
+        var plan = explain(capture(() -> sessionRepository.findIdsByParticipant(userId)), userId);
+
+        assertUsesIndex(plan, "IDX_PARTICIPATE_USER_ID_SESSION_ID");
+    }
+
+    @Test
+    void givenTheMigratedSchema_whenTheSeatsOfAUserAreReleased_thenNeitherTableIsScanned() {
+        var plan = explain(capture(() -> sessionRepository.releaseSeatsOfUser(userId)), userId);
+
+        assertNoTableScan(plan);
+    }
+
+    @Test
+    void givenTheMigratedSchema_whenAParticipationIsLookedUp_thenThePrimaryKeyOfParticipateIsUsed() {
+        var plan = explain(capture(() -> sessionRepository.countParticipation(sessionId, userId)), sessionId, userId);
+
+        assertUsesIndex(plan, "PRIMARY");
+    }
+
+    @Test
+    void givenTheMigratedSchema_whenAParticipationIsInserted_thenNeitherTableIsScanned() {
+        var plan = explain(capture(() -> sessionRepository.insertParticipation(sessionId, otherUserId)), sessionId, otherUserId);
+
+        assertNoTableScan(plan);
+    }
+
+    @Test
+    void givenTheMigratedSchema_whenAUserIsQueued_thenNoTableIsScanned() {
+        var plan = explain(capture(() -> waitlistRepository.insertEntry(sessionId, otherUserId)), sessionId, otherUserId);
+
+        assertNoTableScan(plan);
+    }
+
+    @Test
+    void givenTheMigratedSchema_whenASeatIsReserved_thenThePrimaryKeyOfSessionsIsUsed() {
+        var plan = explain(capture(() -> sessionRepository.reserveSeat(sessionId)), sessionId);
+
+        assertUsesIndex(plan, "PRIMARY");
+    }
+
+    @Test
+    void givenTheMigratedSchema_whenAPageOfSessionsIsRead_thenTheDateIndexGivesTheOrder() {
+        var afterDate = Timestamp.valueOf(LocalDateTime.now().plusDays(SESSIONS - 30));
+        var plan = explain(capture(() -> sessionRepository.findPage(afterDate, sessionId, null, null, null, 21)),
+                afterDate, afterDate, sessionId, 21);
+
+        assertUsesIndex(plan, "IDX_SESSIONS_DATE_ID");
+        assertNoFilesort(plan);
+    }
+
+    @Test
+    void givenTheMigratedSchema_whenAPageOfSessionsOfATeacherIsRead_thenTheTeacherIndexGivesTheOrder() {
+        var plan = explain(capture(() -> sessionRepository.findPage(null, null, null, null, teacherId, 21)), teacherId, 21);
+
+        assertUsesIndex(plan, "IDX_SESSIONS_TEACHER_DATE_ID");
+        assertNoFilesort(plan);
+    }
+
+    @Test
+    void givenTheMigratedSchema_whenTheFirstWaitingUserIsLookedUp_thenTheWaitlistIsReadInQueueOrder() {
+        var plan = explain(capture(() -> waitlistRepository.findFirstBySessionIdOrderByIdAsc(sessionId)), sessionId, 1);
+
+        assertUsesIndex(plan, "IDX_WAITLIST_SESSION_ID_ID");
+        assertNoFilesort(plan);
+    }
+
+    /**
+     * The single statement the repository call sends, as Hibernate generated it. The call runs in a transaction
+     * rolled back afterwards, so the writes leave the data unchanged.
+     */
+    private String capture(Runnable repositoryCall) {
+        List<String> statements = transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            StatementCounter.start();
+            repositoryCall.run();
+            return StatementCounter.stop();
+        });
+
+        assertThat(statements).hasSize(1);
+        return statements.get(0);
+    }
+
+    private List<Map<String, Object>> explain(String sql, Object... args) {
+        return jdbcTemplate.queryForList("EXPLAIN " + sql, args);
+    }
+
+    private static void assertUsesIndex(List<Map<String, Object>> plan, String index) {
+        assertNoTableScan(plan);
+        assertThat(plan).as("EXPLAIN rows").anySatisfy(row -> assertThat(row.get("key")).isEqualTo(index));
+    }
+
+    private static void assertNoTableScan(List<Map<String, Object>> plan) {
+        assertThat(plan).as("EXPLAIN rows").allSatisfy(row -> assertThat(row.get("type")).isNotEqualTo("ALL"));
+    }
+
+    private static void assertNoFilesort(List<Map<String, Object>> plan) {
+        assertThat(plan).as("EXPLAIN rows").allSatisfy(row ->
+                assertThat(String.valueOf(row.get("Extra"))).doesNotContain("Using filesort"));
+    }
+}
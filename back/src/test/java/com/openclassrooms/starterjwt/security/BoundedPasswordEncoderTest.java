@@ -0,0 +1,85 @@
+package com.openclassrooms.starterjwt.security;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BoundedPasswordEncoderTest {
+    private BoundedPasswordEncoder boundedPasswordEncoder;
+
+    @AfterEach
+    void tearDown() {
+        boundedPasswordEncoder.destroy();
+    }
+
+    @Test
+    void givenARawPassword_whenCallsAreMadeToEncodeAndMatches_thenTheHashIsComputedOnThePoolAndVerified() {
+        boundedPasswordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 2, 4, 1);
+
+        var encodedPassword = boundedPasswordEncoder.encode("test!1234");
+
+        assertThat(boundedPasswordEncoder.matches("test!1234", encodedPassword)).isTrue();
+        assertThat(boundedPasswordEncoder.matches("wrong", encodedPassword)).isFalse();
+        assertThat(boundedPasswordEncoder.getHashCount()).isEqualTo(3);
+        assertThat(boundedPasswordEncoder.getRejectedCount()).isZero();
+    }
+
+    @Test
+    void givenASaturatedQueue_whenCallIsMadeToMatches_thenThrowsServiceUnavailableExceptionWithRetryAfter() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        boundedPasswordEncoder = new BoundedPasswordEncoder(new BlockingPasswordEncoder(started, release), 1, 1, 3);
+
+        var running = CompletableFuture.supplyAsync(() -> boundedPasswordEncoder.matches("running", "hash"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        var queued = CompletableFuture.supplyAsync(() -> boundedPasswordEncoder.matches("queued", "hash"));
+        while (boundedPasswordEncoder.getQueueDepth() < 1) {
+            Thread.onSpinWait();
+        }
+
+        var exception = assertThrows(ServiceUnavailableException.class, () -> boundedPasswordEncoder.matches("rejected", "hash"));
+
+        assertThat(exception.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("3");
+        assertThat(boundedPasswordEncoder.getRejectedCount()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static class BlockingPasswordEncoder implements PasswordEncoder {
+        private final CountDownLatch started;
+        private final CountDownLatch release;
+
+        BlockingPasswordEncoder(CountDownLatch started, CountDownLatch release) {
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            started.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+}
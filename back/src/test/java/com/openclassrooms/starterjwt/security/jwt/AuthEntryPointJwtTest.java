@@ -0,0 +1,68 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.SignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.InsufficientAuthenticationException;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthEntryPointJwtTest {
+    private AuthEntryPointJwt authEntryPointJwt;
+
+    @BeforeEach
+    void init() {
+        authEntryPointJwt = new AuthEntryPointJwt(60_000);
+    }
+
+    @Test
+    void givenAnUnauthorizedRequest_whenCallIsMadeToCommence_thenWritesTheSameJsonBodyAsBefore() throws Exception {
+        var request = new MockHttpServletRequest("GET", "/api/session");
+        request.setServletPath("/api/session\"<x>");
+        var response = new MockHttpServletResponse();
+
+        authEntryPointJwt.commence(request, response, new InsufficientAuthenticationException("Full \"authentication\" is required"));
+
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(response.getContentType()).isEqualTo("application/json");
+        Map<?, ?> body = new ObjectMapper().readValue(response.getContentAsByteArray(), Map.class);
+        assertThat(body).containsEntry("status", 401)
+                .containsEntry("error", "Unauthorized")
+                .containsEntry("message", "Full \"authentication\" is required")
+                .containsEntry("path", "/api/session\"<x>");
+    }
+
+    @Test
+    void givenFailureReasonsSetByTheFilter_whenCallsAreMadeToCommence_thenFailuresAreCountedByReason() throws Exception {
+        commence(AuthFailureReason.EXPIRED);
+        commence(AuthFailureReason.EXPIRED);
+        commence(AuthFailureReason.BAD_SIGNATURE);
+        commence(null);
+
+        assertThat(authEntryPointJwt.getExpiredCount()).isEqualTo(2);
+        assertThat(authEntryPointJwt.getBadSignatureCount()).isEqualTo(1);
+        assertThat(authEntryPointJwt.getMalformedCount()).isZero();
+        assertThat(authEntryPointJwt.getFailureCounts()).containsEntry("OTHER", 1L);
+    }
+
+    @Test
+    void givenJwtExceptions_whenCallIsMadeToAuthFailureReasonOf_thenMapsThemToTheirReason() {
+        assertThat(AuthFailureReason.of(new ExpiredJwtException(null, null, "expired"))).isEqualTo(AuthFailureReason.EXPIRED);
+        assertThat(AuthFailureReason.of(new SignatureException("signature"))).isEqualTo(AuthFailureReason.BAD_SIGNATURE);
+        assertThat(AuthFailureReason.of(new MalformedJwtException("malformed"))).isEqualTo(AuthFailureReason.MALFORMED);
+        assertThat(AuthFailureReason.of(new IllegalStateException())).isEqualTo(AuthFailureReason.OTHER);
+    }
+
+    private void commence(AuthFailureReason reason) throws Exception {
+        var request = new MockHttpServletRequest("GET", "/api/session");
+        request.setAttribute(AuthFailureReason.REQUEST_ATTRIBUTE, reason);
+        authEntryPointJwt.commence(request, new MockHttpServletResponse(), new InsufficientAuthenticationException("Unauthorized"));
+    }
+}
@@ -0,0 +1,67 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the previous per-call key derivation (raw secret passed to signWith/setSigningKey) with the
+ * pre-built key ring. Not a test: run it with the main method from the IDE or the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtKeyRingBenchmark {
+    private static final String SECRET = "openclassrooms";
+
+    private JwtKeyRing jwtKeyRing;
+    private String legacyToken;
+    private String keyRingToken;
+
+    @Setup
+    public void setUp() {
+        jwtKeyRing = new JwtKeyRing(SECRET, new JwtKeyRingProperties());
+        legacyToken = legacySign();
+        keyRingToken = keyRingSign();
+    }
+
+    @Benchmark
+    public String legacySign() {
+        return Jwts.builder()
+                .setSubject("yoga@studio.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(SignatureAlgorithm.HS512, SECRET)
+                .compact();
+    }
+
+    @Benchmark
+    public String keyRingSign() {
+        return jwtKeyRing.sign(Jwts.builder()
+                .setSubject("yoga@studio.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000)));
+    }
+
+    @Benchmark
+    public Claims legacyParse() {
+        return Jwts.parser().setSigningKey(SECRET).parseClaimsJws(legacyToken).getBody();
+    }
+
+    @Benchmark
+    public Claims keyRingParse() {
+        return jwtKeyRing.parse(keyRingToken);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtKeyRingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
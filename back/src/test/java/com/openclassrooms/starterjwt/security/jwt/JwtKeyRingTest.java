@@ -0,0 +1,76 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JwtKeyRingTest {
+    private static final String SECRET = "openclassrooms";
+
+    private JwtKeyRingProperties properties;
+
+    @BeforeEach
+    void init() throws NoSuchAlgorithmException {
+        var keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(256);
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+
+        var ecKey = new JwtKeyRingProperties.Key();
+        ecKey.setAlgorithm("ES256");
+        ecKey.setPublicKey(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+        ecKey.setPrivateKey(Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+
+        properties = new JwtKeyRingProperties();
+        properties.getKeys().put("ec-1", ecKey);
+    }
+
+    @Test
+    void givenATokenSignedWithTheRawSecret_whenCallIsMadeToParse_thenItIsVerifiedWithTheDefaultKey() {
+        var jwtKeyRing = new JwtKeyRing(SECRET, properties);
+        var legacyToken = Jwts.builder().setSubject("test@test.com").signWith(SignatureAlgorithm.HS512, SECRET).compact();
+
+        assertThat(jwtKeyRing.parse(legacyToken).getSubject()).isEqualTo("test@test.com");
+    }
+
+    @Test
+    void givenAnEs256ActiveKey_whenCallIsMadeToSign_thenTheTokenCarriesItsKidAndTokensOfTheOldKeyStillVerify() {
+        var oldToken = new JwtKeyRing(SECRET, properties).sign(Jwts.builder().setSubject("old@test.com"));
+        properties.setActiveKeyId("ec-1");
+        var jwtKeyRing = new JwtKeyRing(SECRET, properties);
+
+        var newToken = jwtKeyRing.sign(Jwts.builder().setSubject("new@test.com"));
+
+        var header = new String(Base64.getUrlDecoder().decode(newToken.substring(0, newToken.indexOf('.'))));
+        assertThat(header).contains("\"kid\":\"ec-1\"").contains("\"alg\":\"ES256\"");
+        assertThat(jwtKeyRing.parse(newToken).getSubject()).isEqualTo("new@test.com");
+        assertThat(jwtKeyRing.parse(oldToken).getSubject()).isEqualTo("old@test.com");
+    }
+
+    @Test
+    void givenATokenWithAnUnknownKid_whenCallIsMadeToParse_thenThrowsSignatureException() {
+        properties.setActiveKeyId("ec-1");
+        var token = new JwtKeyRing(SECRET, properties).sign(Jwts.builder().setSubject("test@test.com"));
+
+        var jwtKeyRing = new JwtKeyRing(SECRET, new JwtKeyRingProperties());
+
+        assertThrows(SignatureException.class, () -> jwtKeyRing.parse(token));
+    }
+
+    @Test
+    void givenAnActiveKeyWithoutPrivateKey_whenKeyRingIsBuilt_thenThrowsIllegalStateException() {
+        properties.getKeys().get("ec-1").setPrivateKey(null);
+        properties.setActiveKeyId("ec-1");
+
+        assertThrows(IllegalStateException.class, () -> new JwtKeyRing(SECRET, properties));
+    }
+}
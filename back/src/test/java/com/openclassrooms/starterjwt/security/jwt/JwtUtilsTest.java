@@ -0,0 +1,59 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class JwtUtilsTest {
+    private UserDetailsImpl userDetails;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @BeforeEach
+    void init() {
+        userDetails = UserDetailsImpl.builder()
+                .id(1L)
+                .username("test@test.com")
+                .firstName("Test")
+                .lastName("Testt")
+                .admin(true)
+                .password("test!1234")
+                .build();
+    }
+
+    @Test
+    void givenAGeneratedToken_whenCallIsMadeToGetUserDetailsFromClaims_thenReturnsThePrincipalWithoutItsPassword() {
+        var token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(userDetails, null));
+
+        var actualUserDetails = jwtUtils.getUserDetailsFromClaims(jwtUtils.getValidatedClaims(token));
+
+        assertThat(actualUserDetails).isEqualTo(userDetails);
+        assertThat(actualUserDetails.getUsername()).isEqualTo(userDetails.getUsername());
+        assertThat(actualUserDetails.getFirstName()).isEqualTo(userDetails.getFirstName());
+        assertThat(actualUserDetails.getLastName()).isEqualTo(userDetails.getLastName());
+        assertThat(actualUserDetails.getAdmin()).isTrue();
+        assertThat(actualUserDetails.getPassword()).isNull();
+    }
+
+    @Test
+    void givenClaimsWithoutUserId_whenCallIsMadeToGetUserDetailsFromClaims_thenReturnsNull() {
+        var claims = Jwts.claims().setSubject(userDetails.getUsername());
+
+        assertThat(jwtUtils.getUserDetailsFromClaims(claims)).isNull();
+    }
+
+    @Test
+    void givenATamperedToken_whenCallIsMadeToValidateJwtToken_thenReturnsFalse() {
+        var token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(userDetails, null));
+
+        assertThat(jwtUtils.validateJwtToken(token + "x")).isFalse();
+    }
+}
@@ -0,0 +1,74 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerifiedTokenCacheTest {
+    private VerifiedTokenCache verifiedTokenCache;
+    private Claims claims;
+
+    @BeforeEach
+    void init() {
+        verifiedTokenCache = new VerifiedTokenCache(2);
+        claims = Jwts.claims()
+                .setSubject("test@test.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000));
+    }
+
+    @Test
+    void givenACachedToken_whenCallIsMadeToGet_thenReturnsTheClaimsAndCountsAHit() {
+        verifiedTokenCache.put("token", claims);
+
+        var cachedClaims = verifiedTokenCache.get("token");
+
+        assertThat(cachedClaims).isSameAs(claims);
+        assertThat(verifiedTokenCache.getHitCount()).isEqualTo(1);
+        assertThat(verifiedTokenCache.getMissCount()).isZero();
+    }
+
+    @Test
+    void givenAnUnknownToken_whenCallIsMadeToGet_thenReturnsNullAndCountsAMiss() {
+        var cachedClaims = verifiedTokenCache.get("unknown");
+
+        assertThat(cachedClaims).isNull();
+        assertThat(verifiedTokenCache.getHitCount()).isZero();
+        assertThat(verifiedTokenCache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void givenAnExpiredToken_whenCallIsMadeToPut_thenTheTokenIsNotCached() {
+        claims.setExpiration(new Date(System.currentTimeMillis() - 1_000));
+
+        verifiedTokenCache.put("token", claims);
+
+        assertThat(verifiedTokenCache.getSize()).isZero();
+        assertThat(verifiedTokenCache.get("token")).isNull();
+    }
+
+    @Test
+    void givenAFullCache_whenCallIsMadeToPut_thenTheCacheDoesNotGrowBeyondItsMaxSize() {
+        verifiedTokenCache.put("token1", claims);
+        verifiedTokenCache.put("token2", claims);
+        verifiedTokenCache.put("token3", claims);
+
+        assertThat(verifiedTokenCache.getSize()).isEqualTo(2);
+        assertThat(verifiedTokenCache.get("token3")).isNull();
+    }
+
+    @Test
+    void givenATokenThatExpiredWhileCached_whenCallIsMadeToEvictExpired_thenTheEntryIsRemoved() throws InterruptedException {
+        claims.setExpiration(new Date(System.currentTimeMillis() + 50));
+        verifiedTokenCache.put("token", claims);
+
+        Thread.sleep(100);
+        verifiedTokenCache.evictExpired();
+
+        assertThat(verifiedTokenCache.getSize()).isZero();
+    }
+}
@@ -0,0 +1,66 @@
+package com.openclassrooms.starterjwt.security.ratelimit;
+
+import com.openclassrooms.starterjwt.exception.TooManyRequestsException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RateLimitServiceTest {
+    private RateLimitService rateLimitService;
+
+    @BeforeEach
+    void init() {
+        var login = new RateLimitProperties.Route();
+        login.setPattern("/api/auth/login");
+        login.setCapacity(1);
+        login.setRefillPerSecond(0.1);
+        var api = new RateLimitProperties.Route();
+        api.setPattern("/api/**");
+        api.setCapacity(100);
+        api.setRefillPerSecond(100);
+
+        var properties = new RateLimitProperties();
+        properties.getRoutes().add(login);
+        properties.getRoutes().add(api);
+        properties.getAccount().setCapacity(1);
+        properties.getAccount().setRefillPerSecond(0.5);
+
+        rateLimitService = new RateLimitService(properties);
+    }
+
+    @Test
+    void givenALoginBurstFromOneIp_whenCallsAreMadeToTryAcquire_thenTheLoginBudgetAppliesWithoutAffectingOtherRoutes() {
+        assertThat(rateLimitService.tryAcquire(request("POST", "/api/auth/login", "10.0.0.1"))).isZero();
+        assertThat(rateLimitService.tryAcquire(request("POST", "/api/auth/login", "10.0.0.1"))).isEqualTo(10);
+
+        assertThat(rateLimitService.tryAcquire(request("POST", "/api/auth/login", "10.0.0.2"))).isZero();
+        assertThat(rateLimitService.tryAcquire(request("GET", "/api/session", "10.0.0.1"))).isZero();
+        assertThat(rateLimitService.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void givenARouteWithoutBudget_whenCallIsMadeToTryAcquire_thenIsAllowed() {
+        assertThat(rateLimitService.tryAcquire(request("GET", "/index.html", "10.0.0.1"))).isZero();
+        assertThat(rateLimitService.getTrackedKeyCount()).isZero();
+    }
+
+    @Test
+    void givenRepeatedLoginsOnOneAccount_whenCallIsMadeToCheckAccount_thenThrowsTooManyRequestsExceptionWhateverTheCase() {
+        rateLimitService.checkAccount("test@test.com");
+
+        var exception = assertThrows(TooManyRequestsException.class, () -> rateLimitService.checkAccount("TEST@test.com"));
+
+        assertThat(exception.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+    }
+
+    private static MockHttpServletRequest request(String method, String uri, String remoteAddr) {
+        var request = new MockHttpServletRequest(method, uri);
+        request.setServletPath(uri);
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+}
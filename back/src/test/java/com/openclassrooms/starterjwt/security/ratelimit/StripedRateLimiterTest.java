@@ -0,0 +1,57 @@
+package com.openclassrooms.starterjwt.security.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripedRateLimiterTest {
+    private static final long START = 1_000_000_000L;
+
+    @Test
+    void givenABurstOverTheCapacity_whenCallsAreMadeToTryAcquire_thenRejectsWithTheTimeUntilTheNextToken() {
+        var limiter = new StripedRateLimiter(4, 100, 3, 1);
+
+        assertThat(limiter.tryAcquire("10.0.0.1", START)).isZero();
+        assertThat(limiter.tryAcquire("10.0.0.1", START)).isZero();
+        assertThat(limiter.tryAcquire("10.0.0.1", START)).isZero();
+        var waitNanos = limiter.tryAcquire("10.0.0.1", START);
+
+        assertThat(waitNanos).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+        assertThat(limiter.tryAcquire("10.0.0.2", START)).isZero();
+    }
+
+    @Test
+    void givenAnEmptyBucket_whenTimePasses_thenTokensAreRefilled() {
+        var limiter = new StripedRateLimiter(4, 100, 1, 2);
+
+        assertThat(limiter.tryAcquire("10.0.0.1", START)).isZero();
+        assertThat(limiter.tryAcquire("10.0.0.1", START)).isPositive();
+
+        assertThat(limiter.tryAcquire("10.0.0.1", START + TimeUnit.MILLISECONDS.toNanos(500))).isZero();
+    }
+
+    @Test
+    void givenMoreKeysThanTheMaximum_whenCallsAreMadeToTryAcquire_thenTheLeastRecentlySeenKeysAreDropped() {
+        var limiter = new StripedRateLimiter(1, 4, 1, 1);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire("10.0.0." + i, START);
+        }
+
+        assertThat(limiter.size()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    void givenBucketsIdleUntilFull_whenCallIsMadeToEvictIdle_thenOnlyThoseAreRemoved() {
+        var limiter = new StripedRateLimiter(4, 100, 2, 1);
+        limiter.tryAcquire("idle", START);
+        limiter.tryAcquire("active", START + TimeUnit.SECONDS.toNanos(2));
+
+        var evicted = limiter.evictIdle(START + TimeUnit.SECONDS.toNanos(2));
+
+        assertThat(evicted).isEqualTo(1);
+        assertThat(limiter.size()).isEqualTo(1);
+    }
+}
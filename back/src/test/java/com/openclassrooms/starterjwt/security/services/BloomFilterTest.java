@@ -0,0 +1,27 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+    @Test
+    void givenInsertedValues_whenCallIsMadeToMightContain_thenReturnsTrueForEveryOne() {
+        var bloomFilter = new BloomFilter(1000, 0.01);
+        IntStream.range(0, 1000).forEach(i -> bloomFilter.put("jti:" + i));
+
+        assertThat(IntStream.range(0, 1000).allMatch(i -> bloomFilter.mightContain("jti:" + i))).isTrue();
+    }
+
+    @Test
+    void givenAFilledFilter_whenCallIsMadeToMightContainForUnknownValues_thenFalsePositivesStayNearTheConfiguredRate() {
+        var bloomFilter = new BloomFilter(1000, 0.01);
+        IntStream.range(0, 1000).forEach(i -> bloomFilter.put("jti:" + i));
+
+        var falsePositives = IntStream.range(0, 10000).filter(i -> bloomFilter.mightContain("user:" + i)).count();
+
+        assertThat(falsePositives).isLessThan(300);
+    }
+}
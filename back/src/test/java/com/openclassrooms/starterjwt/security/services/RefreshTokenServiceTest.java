@@ -0,0 +1,71 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import com.openclassrooms.starterjwt.models.RefreshToken;
+import com.openclassrooms.starterjwt.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class RefreshTokenServiceTest {
+    private RefreshTokenRepository refreshTokenRepository;
+    private RefreshTokenService refreshTokenService;
+
+    @BeforeEach
+    void init() {
+        refreshTokenRepository = mock(RefreshTokenRepository.class);
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, 60_000);
+    }
+
+    @Test
+    void givenAUserId_whenCallIsMadeToCreate_thenStoresOnlyTheHashOfTheReturnedToken() {
+        var captor = ArgumentCaptor.forClass(RefreshToken.class);
+
+        var token = refreshTokenService.create(1L);
+
+        verify(refreshTokenRepository).save(captor.capture());
+        assertThat(captor.getValue().getTokenHash()).hasSize(64).isEqualTo(RefreshTokenService.hash(token)).isNotEqualTo(token);
+        assertThat(captor.getValue().getUserId()).isEqualTo(1L);
+        assertThat(captor.getValue().getExpiresAt()).isAfter(LocalDateTime.now());
+    }
+
+    @Test
+    void givenAValidToken_whenCallIsMadeToConsume_thenDeletesItAndReturnsTheUserId() {
+        var refreshToken = RefreshToken.builder().id(5L).userId(1L).expiresAt(LocalDateTime.now().plusMinutes(1)).build();
+        when(refreshTokenRepository.findByTokenHash(RefreshTokenService.hash("token"))).thenReturn(Optional.of(refreshToken));
+        when(refreshTokenRepository.deleteByIdReturningCount(5L)).thenReturn(1);
+
+        assertThat(refreshTokenService.consume("token")).contains(1L);
+    }
+
+    @Test
+    void givenATokenConsumedConcurrently_whenCallIsMadeToConsume_thenReturnsEmpty() {
+        var refreshToken = RefreshToken.builder().id(5L).userId(1L).expiresAt(LocalDateTime.now().plusMinutes(1)).build();
+        when(refreshTokenRepository.findByTokenHash(RefreshTokenService.hash("token"))).thenReturn(Optional.of(refreshToken));
+        when(refreshTokenRepository.deleteByIdReturningCount(5L)).thenReturn(0);
+
+        assertThat(refreshTokenService.consume("token")).isEmpty();
+    }
+
+    @Test
+    void givenAnExpiredToken_whenCallIsMadeToConsume_thenReturnsEmpty() {
+        var refreshToken = RefreshToken.builder().id(5L).userId(1L).expiresAt(LocalDateTime.now().minusMinutes(1)).build();
+        when(refreshTokenRepository.findByTokenHash(RefreshTokenService.hash("token"))).thenReturn(Optional.of(refreshToken));
+        when(refreshTokenRepository.deleteByIdReturningCount(5L)).thenReturn(1);
+
+        assertThat(refreshTokenService.consume("token")).isEmpty();
+    }
+
+    @Test
+    void givenAnUnknownToken_whenCallIsMadeToConsume_thenReturnsEmpty() {
+        when(refreshTokenRepository.findByTokenHash(any())).thenReturn(Optional.empty());
+
+        assertThat(refreshTokenService.consume("unknown")).isEmpty();
+        verify(refreshTokenRepository, never()).deleteByIdReturningCount(any());
+    }
+}
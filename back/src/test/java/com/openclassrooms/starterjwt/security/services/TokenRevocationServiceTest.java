@@ -0,0 +1,79 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import com.openclassrooms.starterjwt.models.RevokedToken;
+import com.openclassrooms.starterjwt.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationServiceTest {
+    private RevokedTokenRepository revokedTokenRepository;
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void init() {
+        revokedTokenRepository = mock(RevokedTokenRepository.class);
+        tokenRevocationService = new TokenRevocationService(revokedTokenRepository, 1000, 0.01, 60_000);
+        when(revokedTokenRepository.findByIdGreaterThanOrderByIdAsc(anyLong())).thenReturn(List.of(
+                RevokedToken.builder().id(1L).jti("revoked-jti").expiresAt(LocalDateTime.now().plusHours(1)).build(),
+                RevokedToken.builder().id(2L).userId(42L).expiresAt(LocalDateTime.now().plusHours(1)).build()));
+        tokenRevocationService.refresh();
+    }
+
+    @Test
+    void givenATokenAbsentFromTheFilter_whenCallIsMadeToIsRevoked_thenReturnsFalseWithoutQueryingTheDatabase() {
+        assertThat(tokenRevocationService.isRevoked("valid-jti", 1L)).isFalse();
+
+        verify(revokedTokenRepository, never()).existsByJti(anyString());
+        verify(revokedTokenRepository, never()).existsByUserId(anyLong());
+    }
+
+    @Test
+    void givenARevokedJti_whenCallIsMadeToIsRevoked_thenConfirmsItInTheDatabase() {
+        when(revokedTokenRepository.existsByJti("revoked-jti")).thenReturn(true);
+
+        assertThat(tokenRevocationService.isRevoked("revoked-jti", 1L)).isTrue();
+
+        verify(revokedTokenRepository, times(1)).existsByJti("revoked-jti");
+    }
+
+    @Test
+    void givenARevokedUser_whenCallIsMadeToIsRevoked_thenConfirmsItInTheDatabase() {
+        when(revokedTokenRepository.existsByUserId(42L)).thenReturn(true);
+
+        assertThat(tokenRevocationService.isRevoked("valid-jti", 42L)).isTrue();
+
+        verify(revokedTokenRepository, times(1)).existsByUserId(42L);
+    }
+
+    @Test
+    void givenAUser_whenCallIsMadeToRevokeUser_thenPersistsTheEntryAndFlagsTheUserImmediately() {
+        when(revokedTokenRepository.existsByUserId(7L)).thenReturn(true);
+
+        tokenRevocationService.revokeUser(7L);
+
+        verify(revokedTokenRepository, times(1)).save(any(RevokedToken.class));
+        assertThat(tokenRevocationService.isRevoked("valid-jti", 7L)).isTrue();
+    }
+
+    @Test
+    void givenExpiredEntries_whenCallIsMadeToPurgeExpired_thenRebuildsTheFilterFromTheRemainingRows() {
+        when(revokedTokenRepository.deleteExpired(any())).thenReturn(1);
+        when(revokedTokenRepository.findByIdGreaterThanOrderByIdAsc(0L)).thenReturn(List.of(
+                RevokedToken.builder().id(2L).userId(42L).expiresAt(LocalDateTime.now().plusHours(1)).build()));
+
+        tokenRevocationService.purgeExpired();
+
+        assertThat(tokenRevocationService.isRevoked("revoked-jti", null)).isFalse();
+        verify(revokedTokenRepository, never()).existsByJti(anyString());
+        assertThat(tokenRevocationService.getLastSeenId()).isEqualTo(2L);
+    }
+}
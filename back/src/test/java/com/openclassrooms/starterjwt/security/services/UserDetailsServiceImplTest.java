@@ -56,4 +56,17 @@ class UserDetailsServiceImplTest {
 
         assertThat(actualUserDetails).isEqualTo(expectedUserDetails);
     }
+
+    @Test
+    void givenAnExistingAdminUsername_whenCallIsMadeToLoadUserByUsername_thenReturnsUserDetailsCarryingTheAdminFlag() {
+        user.setAdmin(true);
+        when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+
+        var actualUserDetails = (UserDetailsImpl) userDetailsService.loadUserByUsername(user.getEmail());
+
+        verify(userRepository, times(1)).findByEmail(user.getEmail());
+        assertThat(actualUserDetails.getAdmin()).isTrue();
+        assertThat(actualUserDetails.getFirstName()).isEqualTo(user.getFirstName());
+        assertThat(actualUserDetails.getLastName()).isEqualTo(user.getLastName());
+    }
 }
\ No newline at end of file
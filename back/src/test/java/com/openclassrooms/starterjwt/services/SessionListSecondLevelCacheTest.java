@@ -0,0 +1,120 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static com.openclassrooms.starterjwt.fixtures.SessionFixtures.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark of the statements run by the session list with participants (GET /api/session?includeUsers=true):
+ * the first listing fills the second-level cache, the next ones read the participant ids and the users from it.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class SessionListSecondLevelCacheTest {
+    private static final int SESSIONS = 50;
+    private static final int PARTICIPANTS = 10;
+
+    @Autowired
+    private SessionService sessionService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private SessionMapper sessionMapper;
+    @Autowired
+    private SessionRepository sessionRepository;
+    @Autowired
+    private TeacherRepository teacherRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void init() {
+        Teacher teacher = teacherRepository.save(teacher());
+        List<User> participants = userRepository.saveAll(users("cache", PARTICIPANTS));
+        sessionRepository.saveAll(sessions(SESSIONS, teacher, participants));
+
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionRepository.findAll().forEach(session -> sessionService.delete(session.getId(), null));
+        userRepository.deleteAll();
+        teacherRepository.deleteAll();
+    }
+
+    @Test
+    void givenAWarmCache_whenTheSessionsAreListedWithTheirParticipants_thenOnlyTheListQueryReachesTheDatabase() {
+        long coldStatements = listWithParticipants();
+        long warmStatements = listWithParticipants();
+
+        String measures = String.format("%d statements cold, %d warm, %d second-level cache hits",
+                coldStatements, warmStatements, statistics.getSecondLevelCacheHitCount());
+        assertThat(warmStatements).as(measures).isEqualTo(1);
+        assertThat(warmStatements).as(measures).isLessThan(coldStatements);
+        assertThat(statistics.getSecondLevelCacheHitCount()).as(measures).isGreaterThanOrEqualTo(SESSIONS + PARTICIPANTS);
+    }
+
+    @Test
+    void givenCachedParticipantLists_whenAParticipationIsAddedNatively_thenOnlyTheListOfTheBookedSessionIsEvicted() {
+        listWithParticipants();
+        User user = userRepository.save(user("late@test.com"));
+        List<Session> sessions = sessionRepository.findAll();
+        Long sessionId = sessions.get(0).getId();
+        Long otherSessionId = sessions.get(1).getId();
+
+        sessionService.participate(sessionId, user.getId());
+
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        assertThat(sessionFactory.getCache().containsCollection(Session.PARTICIPANTS_CACHE_REGION, sessionId)).isFalse();
+        assertThat(sessionFactory.getCache().containsCollection(Session.PARTICIPANTS_CACHE_REGION, otherSessionId)).isTrue();
+        assertThat(sessionFactory.getCache().containsEntity(Teacher.class, sessionRepository.findAll().get(0).getTeacher().getId())).isTrue();
+        assertThat(transactionTemplate.execute(status -> sessionService.getById(sessionId).getUsers())).hasSize(PARTICIPANTS + 1);
+    }
+
+    @Test
+    void givenACachedUser_whenCallIsMadeToEvictFromCache_thenTheUserIsReadFromTheDatabaseAgain() {
+        listWithParticipants();
+        Long userId = userRepository.findByEmail("cache0@test.com").orElseThrow().getId();
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        assertThat(sessionFactory.getCache().containsEntity(User.class, userId)).isTrue();
+
+        userService.evictFromCache(userId);
+
+        assertThat(sessionFactory.getCache().containsEntity(User.class, userId)).isFalse();
+    }
+
+    private long listWithParticipants() {
+        long before = statistics.getPrepareStatementCount();
+        transactionTemplate.executeWithoutResult(status -> sessionMapper.toDto(sessionService.findAll()));
+        return statistics.getPrepareStatementCount() - before;
+    }
+}
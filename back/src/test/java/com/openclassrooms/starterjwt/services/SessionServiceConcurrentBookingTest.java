@@ -0,0 +1,155 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.openclassrooms.starterjwt.fixtures.SessionFixtures.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class SessionServiceConcurrentBookingTest {
+    private static final int CAPACITY = 20;
+    private static final int BOOKINGS = 2000;
+    private static final int THREADS = 32;
+
+    private Session session;
+    private List<User> users;
+
+    @Autowired
+    private SessionService sessionService;
+    @Autowired
+    private SessionRepository sessionRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    @BeforeEach
+    void init() {
+        session = sessionRepository.save(session("Session", null, null).setCapacity(CAPACITY));
+        users = userRepository.saveAll(users("booking", BOOKINGS));
+    }
+
+    @AfterEach
+    void tearDown() {
+        waitlistRepository.deleteAll();
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void givenThousandsOfConcurrentBookings_whenCallsAreMadeToParticipate_thenTheSessionNeverExceedsItsCapacity() throws Exception {
+        List<ParticipationStatus> statuses = runConcurrently(users.stream()
+                .<Callable<ParticipationStatus>>map(user -> () -> sessionService.participate(session.getId(), user.getId()))
+                .collect(Collectors.toList()));
+
+        assertThat(statuses).filteredOn(status -> status == ParticipationStatus.PARTICIPATING).hasSize(CAPACITY);
+        assertThat(statuses).filteredOn(status -> status == ParticipationStatus.WAITLISTED).hasSize(BOOKINGS - CAPACITY);
+        assertSeats(CAPACITY, BOOKINGS - CAPACITY);
+    }
+
+    @Test
+    void givenAFullSessionAndConcurrentCancellations_whenCallsAreMadeToNoLongerParticipate_thenTheFirstWaitingUsersArePromoted() throws Exception {
+        var bookings = 100;
+        var cancellations = 10;
+        for (User user : users.subList(0, bookings)) {
+            sessionService.participate(session.getId(), user.getId());
+        }
+        var firstWaiting = users.subList(CAPACITY, CAPACITY + cancellations).stream().map(User::getId).collect(Collectors.toList());
+
+        runConcurrently(users.subList(0, cancellations).stream()
+                .<Callable<Void>>map(user -> () -> {
+                    sessionService.noLongerParticipate(session.getId(), user.getId());
+                    return null;
+                })
+                .collect(Collectors.toList()));
+
+        assertSeats(CAPACITY, bookings - CAPACITY - cancellations);
+        assertThat(sessionRepository.findById(session.getId()).orElseThrow().getUsers())
+                .extracting(User::getId)
+                .containsAll(firstWaiting);
+    }
+
+    @Test
+    void givenConcurrentBookings_whenTheSessionIsChangedWithoutAnExpectedVersion_thenNoChangeFailsAPrecondition() throws Exception {
+        var bookings = 200;
+        var changes = 20;
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (User user : users.subList(0, bookings)) {
+            tasks.add(() -> {
+                sessionService.participate(session.getId(), user.getId());
+                return null;
+            });
+        }
+        for (var i = 0; i < changes; i++) {
+            var name = "Session " + i;
+            tasks.add(i * bookings / changes, () -> {
+                sessionService.patch(session.getId(), null, s -> s.setName(name));
+                return null;
+            });
+            tasks.add(i * bookings / changes, () -> {
+                sessionService.update(session.getId(), session(name, null, null).setCapacity(CAPACITY));
+                return null;
+            });
+        }
+
+        // A 412 raised by any of the changes fails the future, and so the test
+        runConcurrently(tasks);
+
+        var changedSession = sessionRepository.findById(session.getId()).orElseThrow();
+        assertThat(changedSession.getName()).startsWith("Session ");
+        assertThat(changedSession.getSeatsTaken()).isEqualTo(changedSession.getUsers().size());
+    }
+
+    private void assertSeats(int participants, long waiting) {
+        var bookedSession = sessionRepository.findById(session.getId()).orElseThrow();
+
+        assertThat(bookedSession.getUsers()).hasSize(participants);
+        assertThat(bookedSession.getSeatsTaken()).isEqualTo(participants);
+        assertThat(waitlistRepository.countBySessionId(session.getId())).isEqualTo(waiting);
+    }
+
+    private <T> List<T> runConcurrently(List<Callable<T>> tasks) throws Exception {
+        var start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<T>> futures = new ArrayList<>();
+
+        try {
+            for (Callable<T> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -2,20 +2,26 @@ package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.exception.PreconditionFailedException;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
-import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -31,7 +37,9 @@ class SessionServiceTest {
     @MockBean
     private SessionRepository sessionRepository;
     @MockBean
-    private UserRepository userRepository;
+    private WaitlistRepository waitlistRepository;
+    @MockBean
+    private TeacherRepository teacherRepository;
 
     @BeforeEach
     void init() {
@@ -62,25 +70,153 @@ class SessionServiceTest {
     }
 
     @Test
-    void givenTheIdOfASession_whenCallIsMadeToDelete_thenDeletesTheSession() {
-        doNothing().when(sessionRepository).deleteById(session.getId());
+    void givenASessionWithAnUnexistingTeacher_whenCallIsMadeToCreate_thenThrowsBadRequestException() {
+        session.setTeacher(Teacher.builder().id(9L).build());
+        when(teacherRepository.existsById(9L)).thenReturn(false);
+
+        assertThrows(BadRequestException.class, () -> sessionService.create(session));
+
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Test
+    void givenAnotherIntegrityViolation_whenCallIsMadeToCreate_thenLetsItPropagate() {
+        session.setTeacher(Teacher.builder().id(2L).build());
+        when(teacherRepository.existsById(2L)).thenReturn(true);
+        when(sessionRepository.save(session)).thenThrow(new DataIntegrityViolationException("Data too long for column 'name'"));
 
-        sessionService.delete(session.getId());
+        assertThrows(DataIntegrityViolationException.class, () -> sessionService.create(session));
+    }
+
+    @Test
+    void givenTheIdOfASession_whenCallIsMadeToDelete_thenDeletesTheSessionAndItsRowsInBulk() {
+        when(sessionRepository.lockForDelete(session.getId())).thenReturn(1);
+        when(sessionRepository.deleteByIdReturningCount(session.getId())).thenReturn(1);
 
-        verify(sessionRepository, times(1)).deleteById(session.getId());
+        var deleted = sessionService.delete(session.getId(), null);
+
+        assertThat(deleted).isTrue();
+        verify(waitlistRepository, times(1)).deleteBySessionId(session.getId());
+        verify(sessionRepository, times(1)).deleteParticipationsBySessionId(session.getId());
+        verify(sessionRepository, never()).findById(any());
+        verify(sessionRepository, never()).deleteById(any());
     }
 
     @Test
-    void findAll_shouldReturnAllExistingSessions() {
+    void givenTheIdOfAnUnexistingSession_whenCallIsMadeToDelete_thenReturnsFalseWithoutDeletingAnything() {
+        when(sessionRepository.lockForDelete(99999L)).thenReturn(0);
+
+        var deleted = sessionService.delete(99999L, null);
+
+        assertThat(deleted).isFalse();
+        verify(sessionRepository, never()).deleteParticipationsBySessionId(any());
+        verify(sessionRepository, never()).deleteByIdReturningCount(any());
+    }
+
+    @Test
+    void givenTheIdOfAParticipant_whenCallIsMadeToRemoveUser_thenReleasesItsSeatsInBulkAndPromotes() {
+        var waitlistEntry = WaitlistEntry.builder().id(5L).sessionId(session.getId()).userId(2L).build();
+        when(sessionRepository.findIdsByParticipant(user.getId())).thenReturn(List.of(session.getId()));
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(session.getId())).thenReturn(Optional.of(waitlistEntry), Optional.empty());
+        when(sessionRepository.reserveSeat(session.getId())).thenReturn(1);
+
+        sessionService.removeUser(user.getId());
+
+        verify(sessionRepository, times(1)).releaseSeatsOfUser(user.getId());
+        verify(sessionRepository, times(1)).deleteParticipationsByUserId(user.getId());
+        verify(waitlistRepository, times(1)).deleteByUserId(user.getId());
+        verify(sessionRepository, times(1)).insertParticipation(session.getId(), 2L);
+    }
+
+    @Test
+    void findAll_shouldReturnTheFirstPageOfSessions() {
         var sessions = List.of(session);
-        when(sessionRepository.findAll()).thenReturn(sessions);
+        when(sessionRepository.findPage(null, null, null, null, null, 100)).thenReturn(sessions);
 
         var allSessions = sessionService.findAll();
 
-        verify(sessionRepository, times(1)).findAll();
+        verify(sessionRepository, times(1)).findPage(null, null, null, null, null, 100);
+        verify(sessionRepository, never()).findAll();
         assertThat(allSessions).hasSize(sessions.size());
     }
 
+    @Test
+    void givenMoreSessionsThanThePageSize_whenCallIsMadeToFindPage_thenReturnsOnePageAndTheCursorOfItsLastSession() {
+        var nextSession = Session.builder().id(2L).date(session.getDate()).build();
+        when(sessionRepository.findPage(null, null, null, null, null, 2)).thenReturn(List.of(session, nextSession));
+
+        var page = sessionService.findPage(null, 1, null, null, null);
+
+        assertThat(page.getSessions()).containsExactly(session);
+        assertThat(page.getNextCursor()).isEqualTo(SessionService.encodeCursor(session));
+    }
+
+    @Test
+    void givenACursor_whenCallIsMadeToFindPage_thenQueriesTheSessionsAfterItsKeyWithTheFilters() {
+        var cursor = SessionService.encodeCursor(session);
+        var from = new Date(0);
+        when(sessionRepository.findPage(session.getDate(), session.getId(), from, null, 2L, 21)).thenReturn(List.of());
+
+        var page = sessionService.findPage(cursor, 20, from, null, 2L);
+
+        verify(sessionRepository, times(1)).findPage(session.getDate(), session.getId(), from, null, 2L, 21);
+        assertThat(page.getSessions()).isEmpty();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void givenAPageSizeOverTheCap_whenCallIsMadeToFindPage_thenTheSizeIsCapped() {
+        when(sessionRepository.findPage(null, null, null, null, null, 101)).thenReturn(List.of(session));
+
+        sessionService.findPage(null, 100000, null, null, null);
+
+        verify(sessionRepository, times(1)).findPage(null, null, null, null, null, 101);
+    }
+
+    @Test
+    void givenAMalformedCursor_whenCallIsMadeToFindPage_thenThrowsBadRequestException() {
+        assertThrows(BadRequestException.class, () -> sessionService.findPage("not-a-cursor", 20, null, null, null));
+    }
+
+    @Test
+    void givenNewSessions_whenCallIsMadeToImportAll_thenSetsTheirSeatsAndInsertsThemTogether() {
+        var sessions = List.of(Session.builder().name("A").users(List.of(user)).build(), Session.builder().name("B").build());
+
+        sessionService.importAll(sessions);
+
+        assertThat(sessions).extracting(Session::getSeatsTaken).containsExactly(1, 0);
+        verify(sessionRepository, times(1)).insertAll(sessions);
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Test
+    void givenMoreParticipantsThanSeats_whenCallIsMadeToCreate_thenThrowsBadRequestExceptionWithoutSaving() {
+        session.setCapacity(1).setUsers(List.of(user, User.builder().id(2L).build()));
+
+        assertThrows(BadRequestException.class, () -> sessionService.create(session));
+
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Test
+    void givenAnImportedSessionWithMoreParticipantsThanSeats_whenCallIsMadeToImportAll_thenThrowsBadRequestExceptionWithoutInserting() {
+        var sessions = List.of(Session.builder().name("A").capacity(1).users(List.of(user, User.builder().id(2L).build())).build());
+
+        assertThrows(BadRequestException.class, () -> sessionService.importAll(sessions));
+
+        verify(sessionRepository, never()).insertAll(any());
+    }
+
+    @Test
+    void givenAConsumer_whenCallIsMadeToExport_thenScrollsTheSessionsWithTheConfiguredFetchSize() {
+        Consumer<Session> consumer = s -> { };
+
+        sessionService.export(consumer);
+
+        verify(sessionRepository, times(1)).scrollForExport(500, consumer);
+        verify(sessionRepository, never()).findAll();
+    }
+
     @Test
     void givenTheIdOfAnExistingSession_whenCallIsMadeToGetById_thenReturnsTheSession() {
         when(sessionRepository.findById(session.getId())).thenReturn(Optional.of(session));
@@ -103,75 +239,329 @@ class SessionServiceTest {
     }
 
     @Test
-    void givenASessionAndItsId_whenCallIsMadeToUpdate_thenReturnsTheUpdatedSession() {
-        when(sessionRepository.save(session)).thenReturn(session);
+    void givenASessionAndItsId_whenCallIsMadeToUpdate_thenReturnsTheUpdatedSessionAndRecountsItsSeats() {
+        when(sessionRepository.findVersionById(session.getId())).thenReturn(2L);
+        when(sessionRepository.saveAndFlush(session)).thenReturn(session);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(session.getId())).thenReturn(Optional.empty());
 
         var updatedSession = sessionService.update(session.getId(), session);
 
-        verify(sessionRepository, times(1)).save(session);
+        assertThat(session.getVersion()).isEqualTo(2L);
+
+        verify(sessionRepository, times(1)).saveAndFlush(session);
+        verify(sessionRepository, times(1)).resyncSeats(session.getId());
         assertThat(updatedSession).isEqualTo(session);
         assertThat(updatedSession.getId()).isEqualTo(session.getId());
     }
 
+    @Test
+    void givenNoExpectedVersion_whenCallIsMadeToUpdate_thenLocksTheSessionBeforeReadingItsVersion() {
+        when(sessionRepository.lockById(session.getId())).thenReturn(session.getId());
+        when(sessionRepository.findVersionById(session.getId())).thenReturn(2L);
+        when(sessionRepository.saveAndFlush(session)).thenReturn(session);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(session.getId())).thenReturn(Optional.empty());
+
+        sessionService.update(session.getId(), session);
+
+        var inOrder = inOrder(sessionRepository);
+        inOrder.verify(sessionRepository).lockById(session.getId());
+        inOrder.verify(sessionRepository).findVersionById(session.getId());
+        inOrder.verify(sessionRepository).saveAndFlush(session);
+    }
+
+    @Test
+    void givenAnExpectedVersion_whenCallIsMadeToUpdate_thenDoesNotLockTheSessionBeforeTheMerge() {
+        when(sessionRepository.findVersionById(session.getId())).thenReturn(2L);
+        when(sessionRepository.saveAndFlush(session)).thenReturn(session);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(session.getId())).thenReturn(Optional.empty());
+
+        sessionService.update(session.getId(), session.setVersion(2L));
+
+        var inOrder = inOrder(sessionRepository);
+        inOrder.verify(sessionRepository).saveAndFlush(session);
+        inOrder.verify(sessionRepository).lockById(session.getId());
+    }
+
+    @Test
+    void givenMoreParticipantsThanSeats_whenCallIsMadeToUpdate_thenThrowsBadRequestExceptionWithoutWriting() {
+        when(sessionRepository.findVersionById(session.getId())).thenReturn(2L);
+        session.setCapacity(1).setUsers(List.of(user, User.builder().id(2L).build()));
+
+        assertThrows(BadRequestException.class, () -> sessionService.update(session.getId(), session));
+
+        verify(sessionRepository, never()).saveAndFlush(any());
+        verify(sessionRepository, never()).resyncSeats(any());
+    }
+
+    @Test
+    void givenAStaleExpectedVersion_whenCallIsMadeToUpdate_thenThrowsPreconditionFailedExceptionWithoutWriting() {
+        when(sessionRepository.findVersionById(session.getId())).thenReturn(3L);
+
+        assertThrows(PreconditionFailedException.class, () -> sessionService.update(session.getId(), session.setVersion(2L)));
+
+        verify(sessionRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void givenAConcurrentChangeDuringTheMerge_whenCallIsMadeToUpdate_thenThrowsPreconditionFailedException() {
+        when(sessionRepository.findVersionById(session.getId())).thenReturn(3L);
+        when(sessionRepository.saveAndFlush(session)).thenThrow(new ObjectOptimisticLockingFailureException(Session.class, session.getId()));
+
+        assertThrows(PreconditionFailedException.class, () -> sessionService.update(session.getId(), session.setVersion(3L)));
+    }
+
+    @Test
+    void givenAnUnexistingTeacher_whenCallIsMadeToUpdate_thenThrowsBadRequestExceptionWithoutWriting() {
+        when(sessionRepository.findVersionById(session.getId())).thenReturn(2L);
+        when(teacherRepository.existsById(9L)).thenReturn(false);
+        session.setTeacher(Teacher.builder().id(9L).build());
+
+        assertThrows(BadRequestException.class, () -> sessionService.update(session.getId(), session));
+
+        verify(sessionRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void givenTheIdOfAnUnexistingSession_whenCallIsMadeToUpdate_thenThrowsNotFoundException() {
+        when(sessionRepository.findVersionById(99999L)).thenReturn(null);
+
+        assertThrows(NotFoundException.class, () -> sessionService.update(99999L, session));
+
+        verify(sessionRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void givenAStaleExpectedVersion_whenCallIsMadeToPatch_thenThrowsPreconditionFailedException() {
+        when(sessionRepository.findWithoutParticipantsById(session.getId())).thenReturn(Optional.of(session.setVersion(3L)));
+
+        assertThrows(PreconditionFailedException.class, () -> sessionService.patch(session.getId(), 2L, s -> s.setName("Session renommée")));
+
+        verify(sessionRepository, never()).flush();
+    }
+
+    @Test
+    void givenTheExpectedVersion_whenCallIsMadeToDelete_thenDeletesTheSession() {
+        when(sessionRepository.lockForDeleteAtVersion(session.getId(), 3L)).thenReturn(1);
+        when(sessionRepository.deleteByIdReturningCount(session.getId())).thenReturn(1);
+
+        assertThat(sessionService.delete(session.getId(), 3L)).isTrue();
+
+        verify(sessionRepository, never()).lockForDelete(any());
+    }
+
+    @Test
+    void givenAStaleExpectedVersion_whenCallIsMadeToDelete_thenThrowsPreconditionFailedException() {
+        when(sessionRepository.lockForDeleteAtVersion(session.getId(), 2L)).thenReturn(0);
+        when(sessionRepository.findVersionById(session.getId())).thenReturn(3L);
+
+        assertThrows(PreconditionFailedException.class, () -> sessionService.delete(session.getId(), 2L));
+
+        verify(sessionRepository, never()).deleteByIdReturningCount(any());
+    }
+
+    @Test
+    void givenAPatchToAnUnexistingTeacher_whenCallIsMadeToPatch_thenThrowsBadRequestExceptionWithoutFlushing() {
+        when(sessionRepository.findWithoutParticipantsById(session.getId())).thenReturn(Optional.of(session));
+        when(teacherRepository.existsById(9L)).thenReturn(false);
+
+        assertThrows(BadRequestException.class, () -> sessionService.patch(session.getId(), null, s -> s.setTeacher(Teacher.builder().id(9L).build())));
+
+        verify(sessionRepository, never()).flush();
+    }
+
+    @Test
+    void givenACapacityBelowTheSeatsTaken_whenCallIsMadeToPatch_thenThrowsBadRequestExceptionWithoutFlushing() {
+        when(sessionRepository.findWithoutParticipantsById(session.getId())).thenReturn(Optional.of(session.setCapacity(10).setSeatsTaken(5)));
+
+        assertThrows(BadRequestException.class, () -> sessionService.patch(session.getId(), null, s -> s.setCapacity(4)));
+
+        verify(sessionRepository, never()).flush();
+        verify(sessionRepository, never()).resyncSeats(any());
+    }
+
+    @Test
+    void givenAPatchOfTheName_whenCallIsMadeToPatch_thenChangesTheManagedSessionWithoutTouchingTheSeats() {
+        when(sessionRepository.findWithoutParticipantsById(session.getId())).thenReturn(Optional.of(session));
+
+        var patchedSession = sessionService.patch(session.getId(), null, s -> s.setName("Session renommée"));
+
+        assertThat(patchedSession.getName()).isEqualTo("Session renommée");
+        verify(sessionRepository, times(1)).flush();
+        verify(sessionRepository, never()).save(any());
+        verify(sessionRepository, never()).resyncSeats(any());
+    }
+
+    @Test
+    void givenNoExpectedVersion_whenCallIsMadeToPatch_thenLocksTheSessionBeforeReadingIt() {
+        when(sessionRepository.lockById(session.getId())).thenReturn(session.getId());
+        when(sessionRepository.findWithoutParticipantsById(session.getId())).thenReturn(Optional.of(session));
+
+        sessionService.patch(session.getId(), null, s -> s.setName("Session renommée"));
+
+        var inOrder = inOrder(sessionRepository);
+        inOrder.verify(sessionRepository).lockById(session.getId());
+        inOrder.verify(sessionRepository).findWithoutParticipantsById(session.getId());
+        inOrder.verify(sessionRepository).flush();
+    }
+
+    @Test
+    void givenAPatchOfTheParticipants_whenCallIsMadeToPatch_thenRecountsTheSeats() {
+        when(sessionRepository.findWithoutParticipantsById(session.getId())).thenReturn(Optional.of(session));
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(session.getId())).thenReturn(Optional.empty());
+
+        sessionService.patch(session.getId(), null, s -> s.setUsers(List.of(user)));
+
+        verify(sessionRepository, times(1)).resyncSeats(session.getId());
+    }
+
+    @Test
+    void givenAPatchOfTheCapacity_whenCallIsMadeToPatch_thenPromotesTheWaitingUsers() {
+        var waitlistEntry = WaitlistEntry.builder().id(5L).sessionId(session.getId()).userId(2L).build();
+        when(sessionRepository.findWithoutParticipantsById(session.getId())).thenReturn(Optional.of(session.setCapacity(1)));
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(session.getId())).thenReturn(Optional.of(waitlistEntry), Optional.empty());
+        when(sessionRepository.reserveSeat(session.getId())).thenReturn(1);
+
+        sessionService.patch(session.getId(), null, s -> s.setCapacity(2));
+
+        verify(sessionRepository, times(1)).resyncSeats(session.getId());
+        verify(sessionRepository, times(1)).insertParticipation(session.getId(), 2L);
+    }
+
+    @Test
+    void givenTheIdOfAnUnexistingSession_whenCallIsMadeToPatch_thenReturnsNull() {
+        when(sessionRepository.findWithoutParticipantsById(99999L)).thenReturn(Optional.empty());
+
+        assertThat(sessionService.patch(99999L, null, s -> s.setName("Session renommée"))).isNull();
+    }
+
     @Test
     void givenTheIdsOfAnUnexistingSessionAndAnExistingUser_whenCallIsMadeToParticipate_thenThrowsNotFoundException() {
         session.setId(99999L);
-        when(sessionRepository.findById(session.getId())).thenReturn(Optional.empty());
-        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(sessionRepository.reserveSeat(session.getId())).thenReturn(0);
+        when(sessionRepository.lockById(session.getId())).thenReturn(null);
 
         assertThrows(NotFoundException.class, () -> sessionService.participate(session.getId(), user.getId()));
 
-        verify(sessionRepository, times(1)).findById(session.getId());
-        verify(userRepository, times(1)).findById(user.getId());
+        verify(sessionRepository, never()).insertParticipation(any(), any());
+        verify(waitlistRepository, never()).insertEntry(any(), any());
+    }
+
+    @Test
+    void givenTheIdsOfASessionWithSeatsLeftAndAnUnexistingUser_whenCallIsMadeToParticipate_thenThrowsNotFoundException() {
+        when(sessionRepository.reserveSeat(session.getId())).thenReturn(1);
+        when(sessionRepository.insertParticipation(session.getId(), 99999L)).thenReturn(0);
+
+        assertThrows(NotFoundException.class, () -> sessionService.participate(session.getId(), 99999L));
     }
 
     @Test
     void givenTheIdsOfASessionAndAUserAlreadyParticipatingInThisSession_whenCallIsMadeToParticipate_thenThrowsBadRequestException() {
-        session.setUsers(List.of(user));
-        when(sessionRepository.findById(session.getId())).thenReturn(Optional.of(session));
-        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(sessionRepository.reserveSeat(session.getId())).thenReturn(1);
+        when(sessionRepository.insertParticipation(session.getId(), user.getId())).thenThrow(new DataIntegrityViolationException("Duplicate entry"));
 
         assertThrows(BadRequestException.class, () -> sessionService.participate(session.getId(), user.getId()));
     }
 
     @Test
-    void givenTheIdsOfASessionAndAUserNotYetParticipatingInThisSession_whenCallIsMadeToParticipate_thenAddsTheUserToParticipantsAndSaveTheSession() {
-        session.setUsers(new ArrayList<>()); // new ArrayList<>() et non pas List.of() qui crée une List non modifiable
-        when(sessionRepository.findById(session.getId())).thenReturn(Optional.of(session));
-        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
-        when(sessionRepository.save(session)).thenReturn(session);
+    void givenTheIdsOfASessionWithSeatsLeftAndAUser_whenCallIsMadeToParticipate_thenTakesASeat() {
+        when(sessionRepository.reserveSeat(session.getId())).thenReturn(1);
+        when(sessionRepository.insertParticipation(session.getId(), user.getId())).thenReturn(1);
+
+        var status = sessionService.participate(session.getId(), user.getId());
+
+        assertThat(status).isEqualTo(ParticipationStatus.PARTICIPATING);
+        verify(sessionRepository, times(1)).insertParticipation(session.getId(), user.getId());
+        verify(sessionRepository, never()).lockById(any());
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Test
+    void givenTheIdsOfAFullSessionAndAUser_whenCallIsMadeToParticipate_thenQueuesTheUser() {
+        when(sessionRepository.reserveSeat(session.getId())).thenReturn(0);
+        when(sessionRepository.lockById(session.getId())).thenReturn(session.getId());
+        when(waitlistRepository.insertEntry(session.getId(), user.getId())).thenReturn(1);
 
-        sessionService.participate(session.getId(), user.getId());
+        var status = sessionService.participate(session.getId(), user.getId());
 
-        assertThat(session.getUsers()).hasSize(1).contains(user);
+        assertThat(status).isEqualTo(ParticipationStatus.WAITLISTED);
+        verify(sessionRepository, times(2)).reserveSeat(session.getId());
+        verify(sessionRepository, never()).insertParticipation(any(), any());
+    }
+
+    @Test
+    void givenTheIdsOfAFullSessionAndAUserAlreadyWaiting_whenCallIsMadeToParticipate_thenThrowsBadRequestException() {
+        when(sessionRepository.reserveSeat(session.getId())).thenReturn(0);
+        when(sessionRepository.lockById(session.getId())).thenReturn(session.getId());
+        when(waitlistRepository.insertEntry(session.getId(), user.getId())).thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+
+        assertThrows(BadRequestException.class, () -> sessionService.participate(session.getId(), user.getId()));
+    }
+
+    @Test
+    void givenTheIdsOfAFullSessionAndOneOfItsParticipants_whenCallIsMadeToParticipate_thenThrowsBadRequestException() {
+        when(sessionRepository.reserveSeat(session.getId())).thenReturn(0);
+        when(sessionRepository.lockById(session.getId())).thenReturn(session.getId());
+        when(waitlistRepository.insertEntry(session.getId(), user.getId())).thenReturn(0);
+        when(sessionRepository.countParticipation(session.getId(), user.getId())).thenReturn(1);
+
+        assertThrows(BadRequestException.class, () -> sessionService.participate(session.getId(), user.getId()));
     }
 
     @Test
     void givenTheIdsOfAnUnexistingSessionAndAnExistingUser_whenCallIsMadeToNoLongerParticipate_thenThrowsNotFoundException() {
         session.setId(99999L);
-        when(sessionRepository.findById(session.getId())).thenReturn(Optional.empty());
+        when(sessionRepository.lockById(session.getId())).thenReturn(null);
 
         assertThrows(NotFoundException.class, () -> sessionService.noLongerParticipate(session.getId(), user.getId()));
 
-        verify(sessionRepository, times(1)).findById(session.getId());
+        verify(sessionRepository, never()).deleteParticipation(any(), any());
     }
 
     @Test
-    void givenTheIdsOfASessionAndAUserNotParticipatingInThisSession_whenCallIsMadeToNoLongerParticipate_thenThrowsBadRequestException() {
-        session.setUsers(List.of());
-        when(sessionRepository.findById(session.getId())).thenReturn(Optional.of(session));
+    void givenTheIdsOfASessionAndAUserNeitherParticipatingNorWaiting_whenCallIsMadeToNoLongerParticipate_thenThrowsBadRequestException() {
+        when(sessionRepository.lockById(session.getId())).thenReturn(session.getId());
+        when(sessionRepository.deleteParticipation(session.getId(), user.getId())).thenReturn(0);
+        when(waitlistRepository.deleteEntry(session.getId(), user.getId())).thenReturn(0);
 
         assertThrows(BadRequestException.class, () -> sessionService.noLongerParticipate(session.getId(), user.getId()));
     }
 
     @Test
-    void givenTheIdsOfASessionAndAUserParticipatingInThisSession_whenCallIsMadeToNoLongerParticipate_thenRemovesTheUserFromParticipantsAndSaveTheSession() {
-        session.setUsers(List.of(user));
-        when(sessionRepository.findById(session.getId())).thenReturn(Optional.of(session));
-        when(sessionRepository.save(session)).thenReturn(session);
+    void givenTheIdsOfASessionAndAWaitingUser_whenCallIsMadeToNoLongerParticipate_thenRemovesTheUserFromTheWaitlist() {
+        when(sessionRepository.lockById(session.getId())).thenReturn(session.getId());
+        when(sessionRepository.deleteParticipation(session.getId(), user.getId())).thenReturn(0);
+        when(waitlistRepository.deleteEntry(session.getId(), user.getId())).thenReturn(1);
+
+        sessionService.noLongerParticipate(session.getId(), user.getId());
+
+        verify(sessionRepository, never()).releaseSeat(any());
+    }
+
+    @Test
+    void givenTheIdsOfASessionAndAParticipant_whenCallIsMadeToNoLongerParticipate_thenReleasesTheSeatToTheFirstWaitingUser() {
+        var waitlistEntry = WaitlistEntry.builder().id(5L).sessionId(session.getId()).userId(2L).build();
+        when(sessionRepository.lockById(session.getId())).thenReturn(session.getId());
+        when(sessionRepository.deleteParticipation(session.getId(), user.getId())).thenReturn(1);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(session.getId())).thenReturn(Optional.of(waitlistEntry), Optional.empty());
+        when(sessionRepository.reserveSeat(session.getId())).thenReturn(1);
+
+        sessionService.noLongerParticipate(session.getId(), user.getId());
+
+        verify(sessionRepository, times(1)).releaseSeat(session.getId());
+        verify(waitlistRepository, times(1)).deleteEntry(session.getId(), 2L);
+        verify(sessionRepository, times(1)).insertParticipation(session.getId(), 2L);
+    }
+
+    @Test
+    void givenTheIdsOfASessionWithoutWaitlistAndAParticipant_whenCallIsMadeToNoLongerParticipate_thenReleasesTheSeat() {
+        when(sessionRepository.lockById(session.getId())).thenReturn(session.getId());
+        when(sessionRepository.deleteParticipation(session.getId(), user.getId())).thenReturn(1);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(session.getId())).thenReturn(Optional.empty());
 
         sessionService.noLongerParticipate(session.getId(), user.getId());
 
-        assertThat(session.getUsers()).isEmpty();
+        verify(sessionRepository, times(1)).releaseSeat(session.getId());
+        verify(sessionRepository, never()).reserveSeat(any());
+        verify(sessionRepository, never()).insertParticipation(any(), any());
     }
-}
\ No newline at end of file
+}
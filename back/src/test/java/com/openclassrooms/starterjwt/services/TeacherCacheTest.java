@@ -0,0 +1,98 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.Teacher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TeacherCacheTest {
+    private TeacherCache teacherCache;
+    private Teacher teacher;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void init() {
+        teacherCache = new TeacherCache(2, 0);
+        teacher = Teacher.builder().id(1L).lastName("Teacher").firstName("Margaret").build();
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void givenACachedTeacher_whenCallIsMadeToGet_thenReturnsItWithoutLoadingAndCountsAHit() {
+        teacherCache.get(1L, this::load);
+
+        var cachedTeacher = teacherCache.get(1L, this::load);
+
+        assertThat(cachedTeacher).isSameAs(teacher);
+        assertThat(loads).hasValue(1);
+        assertThat(teacherCache.getHitCount()).isEqualTo(1);
+        assertThat(teacherCache.getMissCount()).isEqualTo(1);
+        assertThat(teacherCache.getHitRatio()).isEqualTo(0.5);
+    }
+
+    @Test
+    void givenAnUnknownId_whenCallIsMadeToGet_thenDoesNotCacheTheMiss() {
+        teacherCache.get(2L, id -> null);
+
+        assertThat(teacherCache.getSize()).isZero();
+    }
+
+    @Test
+    void givenAnInvalidation_whenCallIsMadeToGetOrGetAll_thenReloads() {
+        teacherCache.get(1L, this::load);
+        teacherCache.getAll(() -> List.of(load(1L)));
+
+        teacherCache.invalidate();
+        teacherCache.get(1L, this::load);
+        teacherCache.getAll(() -> List.of(load(1L)));
+
+        assertThat(loads).hasValue(4);
+        assertThat(teacherCache.getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void givenAWriteDuringTheLoad_whenCallIsMadeToGet_thenTheLoadedTeacherIsNotServedAfterwards() {
+        teacherCache.get(1L, id -> {
+            teacherCache.invalidate();
+            return load(id);
+        });
+
+        teacherCache.get(1L, this::load);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void givenAFullCache_whenCallIsMadeToGet_thenEvictsStaleEntriesOrSkipsCaching() {
+        teacherCache.get(1L, this::load);
+        teacherCache.get(2L, this::load);
+        teacherCache.get(3L, this::load);
+        assertThat(teacherCache.getSize()).isEqualTo(2);
+
+        teacherCache.invalidate();
+        teacherCache.get(3L, this::load);
+
+        assertThat(teacherCache.getSize()).isEqualTo(1);
+    }
+
+    @Test
+    void givenARecentWrite_whenCallIsMadeToGet_thenDoesNotCacheWhatAReplicaMayServeStale() {
+        teacherCache = new TeacherCache(2, 60_000);
+        teacherCache.invalidate();
+
+        teacherCache.get(1L, this::load);
+        teacherCache.get(1L, this::load);
+
+        assertThat(loads).hasValue(2);
+        assertThat(teacherCache.getSize()).isZero();
+    }
+
+    private Teacher load(Long id) {
+        loads.incrementAndGet();
+        return id.equals(teacher.getId()) ? teacher : Teacher.builder().id(id).build();
+    }
+}
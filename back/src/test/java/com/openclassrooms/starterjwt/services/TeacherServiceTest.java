@@ -10,6 +10,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -20,11 +21,14 @@ class TeacherServiceTest {
 
     @Autowired
     private TeacherService teacherService;
+    @Autowired
+    private TeacherCache teacherCache;
     @MockBean
     private TeacherRepository teacherRepository;
 
     @BeforeEach
     void init() {
+        teacherCache.clear();
         teacher = Teacher.builder()
                 .id(1L)
                 .lastName("Teacher")
@@ -63,4 +67,53 @@ class TeacherServiceTest {
         verify(teacherRepository, times(1)).findById(teacher.getId());
         assertThat(foundTeacher).isNull();
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenTheIdOfATeacher_whenCallIsMadeToGetReference_thenReturnsAReferenceWithoutFindById() {
+        when(teacherRepository.getById(teacher.getId())).thenReturn(teacher);
+
+        var reference = teacherService.getReference(teacher.getId());
+
+        verify(teacherRepository, never()).findById(any());
+        assertThat(reference.getId()).isEqualTo(teacher.getId());
+    }
+
+    @Test
+    void givenACachedTeacher_whenCallIsMadeToFindById_thenDoesNotQueryAgain() {
+        when(teacherRepository.findById(teacher.getId())).thenReturn(Optional.of(teacher));
+
+        teacherService.findById(teacher.getId());
+        var foundTeacher = teacherService.findById(teacher.getId());
+
+        assertThat(foundTeacher).isEqualTo(teacher);
+        verify(teacherRepository, times(1)).findById(teacher.getId());
+    }
+
+    @Test
+    void givenATeacherWrite_whenCallIsMadeToFindAll_thenReloadsTheTeachers() {
+        when(teacherRepository.findAll()).thenReturn(List.of(teacher));
+
+        teacherService.findAll();
+        teacherCache.invalidate();
+        teacherService.findAll();
+
+        verify(teacherRepository, times(2)).findAll();
+    }
+
+    @Test
+    void givenIds_whenCallIsMadeToFindExistingIds_thenReturnsTheKnownOnesFromOneQuery() {
+        when(teacherRepository.findExistingIds(Set.of(1L, 2L))).thenReturn(List.of(1L));
+
+        var existingIds = teacherService.findExistingIds(Set.of(1L, 2L));
+
+        assertThat(existingIds).containsExactly(1L);
+        verify(teacherRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void givenNoId_whenCallIsMadeToFindExistingIds_thenDoesNotQuery() {
+        assertThat(teacherService.findExistingIds(Set.of())).isEmpty();
+
+        verifyNoInteractions(teacherRepository);
+    }
+}
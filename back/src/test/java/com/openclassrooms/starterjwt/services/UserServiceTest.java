@@ -1,5 +1,7 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.NotFoundException;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,9 +10,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
@@ -21,6 +26,8 @@ class UserServiceTest {
     private UserService userService;
     @MockBean
     private UserRepository userRepository;
+    @MockBean
+    private SessionService sessionService;
 
     @BeforeEach
     void init() {
@@ -35,12 +42,24 @@ class UserServiceTest {
     }
 
     @Test
-    void givenTheIdOfAUser_whenCallIsMadeToDelete_thenDeletesTheUser() {
-        doNothing().when(userRepository).deleteById(user.getId());
+    void givenTheIdAndEmailOfAUser_whenCallIsMadeToDelete_thenRemovesItsParticipationsAndDeletesTheUser() {
+        when(userRepository.lockByIdAndEmail(user.getId(), user.getEmail())).thenReturn(user.getId());
+        when(userRepository.deleteByIdAndEmailReturningCount(user.getId(), user.getEmail())).thenReturn(1);
+
+        userService.delete(user.getId(), user.getEmail());
+
+        verify(sessionService, times(1)).removeUser(user.getId());
+        verify(userRepository, times(1)).deleteByIdAndEmailReturningCount(user.getId(), user.getEmail());
+        verify(userRepository, never()).findById(any());
+    }
 
-        userService.delete(user.getId());
+    @Test
+    void givenAnotherEmail_whenCallIsMadeToDelete_thenThrowsNotFoundExceptionWithoutTouchingTheSessions() {
+        when(userRepository.lockByIdAndEmail(user.getId(), "other@test.com")).thenReturn(null);
 
-        verify(userRepository, times(1)).deleteById(user.getId());
+        assertThrows(NotFoundException.class, () -> userService.delete(user.getId(), "other@test.com"));
+        verifyNoInteractions(sessionService);
+        verify(userRepository, never()).deleteByIdAndEmailReturningCount(any(), any());
     }
 
     @Test
@@ -63,4 +82,41 @@ class UserServiceTest {
         verify(userRepository, times(1)).findById(user.getId());
         assertThat(foundUser).isNull();
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenTheIdsOfExistingUsers_whenCallIsMadeToFindAllById_thenLoadsTheDistinctIdsInOneQuery() {
+        when(userRepository.findAllById(Set.of(user.getId()))).thenReturn(List.of(user));
+
+        var foundUsers = userService.findAllById(List.of(user.getId(), user.getId()));
+
+        verify(userRepository, times(1)).findAllById(Set.of(user.getId()));
+        verify(userRepository, never()).findById(any());
+        assertThat(foundUsers).containsExactly(user);
+    }
+
+    @Test
+    void givenAnUnexistingUserId_whenCallIsMadeToFindAllById_thenThrowsBadRequestExceptionNamingTheId() {
+        when(userRepository.findAllById(Set.of(user.getId(), 99999L))).thenReturn(List.of(user));
+
+        var exception = assertThrows(BadRequestException.class, () -> userService.findAllById(List.of(user.getId(), 99999L)));
+
+        assertThat(exception.getMessage()).contains("99999");
+    }
+
+    @Test
+    void givenNoUserIds_whenCallIsMadeToFindAllById_thenReturnsAnEmptyListWithoutQuery() {
+        assertThat(userService.findAllById(null)).isEmpty();
+
+        verify(userRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void givenIds_whenCallIsMadeToFindExistingIds_thenReturnsTheKnownOnesWithoutLoadingTheUsers() {
+        when(userRepository.findExistingIds(Set.of(user.getId(), 99999L))).thenReturn(List.of(user.getId()));
+
+        var existingIds = userService.findExistingIds(Set.of(user.getId(), 99999L));
+
+        assertThat(existingIds).containsExactly(user.getId());
+        verify(userRepository, never()).findAllById(any());
+    }
+}
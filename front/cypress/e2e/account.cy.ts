@@ -6,7 +6,7 @@ describe('Account spec', () => {
       cy.intercept('POST', '/api/auth/login', adminSessionInformation);
     });
 
-    cy.intercept('GET', '/api/session', []);
+    cy.intercept('GET', '/api/session/page', { items: [], nextCursor: null });
 
     cy.fixture('user/admin-user').then((adminUser) => {
       cy.intercept('GET', '/api/user/1', adminUser);
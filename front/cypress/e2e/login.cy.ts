@@ -17,9 +17,9 @@ describe('Login spec', () => {
     cy.intercept(
       {
         method: 'GET',
-        url: '/api/session',
+        url: '/api/session/page',
       },
-      []).as('session')
+      { items: [], nextCursor: null }).as('session')
 
     cy.get('input[formControlName=email]').type("yoga@studio.com")
     cy.get('input[formControlName=password]').type(`${"test!1234"}{enter}{enter}`)
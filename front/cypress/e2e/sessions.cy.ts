@@ -7,7 +7,7 @@ describe('Sessions spec', () => {
     });
 
     cy.fixture('session/sessions').then((sessions) => {
-      cy.intercept('GET', '/api/session', sessions);
+      cy.intercept('GET', '/api/session/page', { items: sessions, nextCursor: null });
     });
 
     cy.fixture('session/session-1').then((session) => {
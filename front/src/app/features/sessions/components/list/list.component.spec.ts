@@ -3,7 +3,9 @@ import { ComponentFixture, TestBed } from '@angular/core/testing';
 import { MatCardModule } from '@angular/material/card';
 import { MatIconModule } from '@angular/material/icon';
 import { expect } from '@jest/globals';
+import { of } from 'rxjs';
 import { SessionService } from 'src/app/services/session.service';
+import { SessionApiService } from '../../services/session-api.service';
 
 import { ListComponent } from './list.component';
 
@@ -33,4 +35,18 @@ describe('ListComponent', () => {
   it('should create', () => {
     expect(component).toBeTruthy();
   });
+
+  it('should append the next page of sessions on loadMore', () => {
+    const firstSession = { id: 1, name: "session 1", description: "session 1", date: new Date(), teacher_id: 1, users: [] };
+    const nextSession = { id: 2, name: "session 2", description: "session 2", date: new Date(), teacher_id: 1, users: [] };
+    const spiedPage = jest.spyOn(TestBed.inject(SessionApiService), 'page').mockReturnValue(of({ items: [nextSession], nextCursor: null }));
+    component.sessions = [firstSession];
+    component.nextCursor = 'cursor';
+
+    component.loadMore();
+
+    expect(spiedPage).toHaveBeenCalledWith('cursor');
+    expect(component.sessions).toEqual([firstSession, nextSession]);
+    expect(component.nextCursor).toBeNull();
+  });
 });
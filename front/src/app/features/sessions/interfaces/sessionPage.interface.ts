@@ -0,0 +1,6 @@
+import { Session } from './session.interface';
+
+export interface SessionPage {
+  items: Session[];
+  nextCursor: string | null;
+}
@@ -33,6 +33,24 @@ describe('SessionApiService', () => {
     expect(service).toBeTruthy();
   });
   
+  it('should call httpClient.get() and return an observable that emits the first page of sessions on page', () => {
+    const mockedPage = { items: [mockedSession], nextCursor: 'cursor' };
+    const spiedHttpClientGet = jest.spyOn(httpClient, 'get').mockReturnValue(of(mockedPage));
+
+    service.page().subscribe(value => {
+      expect(spiedHttpClientGet).toHaveBeenCalledWith(`${service['pathService']}/page`, { params: {} });
+      expect(value).toEqual(mockedPage);
+    });
+  });
+
+  it('should call httpClient.get() with the cursor on page', () => {
+    const spiedHttpClientGet = jest.spyOn(httpClient, 'get').mockReturnValue(of({ items: [], nextCursor: null }));
+
+    service.page('cursor').subscribe(() =>
+      expect(spiedHttpClientGet).toHaveBeenCalledWith(`${service['pathService']}/page`, { params: { cursor: 'cursor' } })
+    );
+  });
+
   it('should call httpClient.get() and return an observable that emits the requested session on detail', () => {
     const spiedHttpClientGet = jest.spyOn(httpClient, 'get').mockReturnValue(of(mockedSession));
     const id = '1';
@@ -2,6 +2,7 @@ import { HttpClient } from '@angular/common/http';
 import { Injectable } from '@angular/core';
 import { Observable } from 'rxjs';
 import { Session } from '../interfaces/session.interface';
+import { SessionPage } from '../interfaces/sessionPage.interface';
 
 @Injectable({
   providedIn: 'root'
@@ -13,8 +14,9 @@ export class SessionApiService {
   constructor(private httpClient: HttpClient) {
   }
 
-  public all(): Observable<Session[]> {
-    return this.httpClient.get<Session[]>(this.pathService);
+  public page(cursor?: string): Observable<SessionPage> {
+    const params: { [param: string]: string } = cursor ? { cursor } : {};
+    return this.httpClient.get<SessionPage>(`${this.pathService}/page`, { params });
   }
 
   public detail(id: string): Observable<Session> {
@@ -1,19 +1,58 @@
-import { HttpHandler, HttpInterceptor, HttpRequest } from "@angular/common/http";
+import { HttpErrorResponse, HttpEvent, HttpHandler, HttpInterceptor, HttpRequest, HttpResponse } from "@angular/common/http";
 import { Injectable } from "@angular/core";
+import { Observable, throwError } from "rxjs";
+import { catchError, filter, finalize, map, share, switchMap, take, tap } from "rxjs/operators";
+import { SessionInformation } from '../interfaces/sessionInformation.interface';
 import { SessionService } from '../services/session.service';
 
 @Injectable({ providedIn: 'root' })
 export class JwtInterceptor implements HttpInterceptor {
+  private refresh$: Observable<SessionInformation> | null = null;
+
   constructor(private sessionService: SessionService) {}
 
-  public intercept(request: HttpRequest<any>, next: HttpHandler) {
-    if (this.sessionService.isLogged) {
-      request = request.clone({
-        setHeaders: {
-          Authorization: `Bearer ${this.sessionService.sessionInformation!.token}`,
-        },
+  public intercept(request: HttpRequest<any>, next: HttpHandler): Observable<HttpEvent<any>> {
+    return next.handle(this.withToken(request)).pipe(
+      catchError((error) => {
+        if (error instanceof HttpErrorResponse && error.status === 401
+            && this.sessionService.sessionInformation?.refreshToken && !request.url.startsWith('api/auth/')) {
+          return this.refresh(next).pipe(switchMap(() => next.handle(this.withToken(request))));
+        }
+        return throwError(() => error);
+      })
+    );
+  }
+
+  private withToken(request: HttpRequest<any>): HttpRequest<any> {
+    if (!this.sessionService.isLogged) {
+      return request;
+    }
+    return request.clone({
+      setHeaders: {
+        Authorization: `Bearer ${this.sessionService.sessionInformation!.token}`,
+      },
+    });
+  }
+
+  // Refresh tokens are single-use: requests failing together share one refresh call.
+  private refresh(next: HttpHandler): Observable<SessionInformation> {
+    if (!this.refresh$) {
+      const refreshRequest = new HttpRequest('POST', 'api/auth/refresh', {
+        refreshToken: this.sessionService.sessionInformation!.refreshToken,
       });
+      this.refresh$ = next.handle(refreshRequest).pipe(
+        filter((event): event is HttpResponse<SessionInformation> => event instanceof HttpResponse),
+        take(1),
+        map((response) => response.body!),
+        tap((sessionInformation) => this.sessionService.logIn(sessionInformation)),
+        catchError((error) => {
+          this.sessionService.logOut();
+          return throwError(() => error);
+        }),
+        finalize(() => this.refresh$ = null),
+        share()
+      );
     }
-    return next.handle(request);
+    return this.refresh$;
   }
 }